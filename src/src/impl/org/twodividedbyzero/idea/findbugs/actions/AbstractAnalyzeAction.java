@@ -31,6 +31,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.common.EventDispatchThreadHelper;
 import org.twodividedbyzero.idea.findbugs.common.util.SonarImporterUtil;
+import org.twodividedbyzero.idea.findbugs.core.AnalysisScheduler;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsPlugin;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsPluginImpl;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsState;
@@ -83,6 +84,15 @@ abstract class AbstractAnalyzeAction extends AbstractAction {
 		}
 	}
 
+	/**
+	 * @return true if no analysis is running or if the running one is an automatic analysis
+	 * which will be preempted, see {@link AnalysisScheduler}
+	 */
+	static boolean canStart(@NotNull final Project project, @NotNull final FindBugsState state) {
+		return state.isIdle() || AnalysisScheduler.isPreemptible(project);
+	}
+
+
 	abstract void analyze(
 			@NotNull final AnActionEvent e,
 			@NotNull final Project project,
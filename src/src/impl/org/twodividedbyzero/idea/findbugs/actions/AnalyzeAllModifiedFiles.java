@@ -32,6 +32,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.core.AuxClasspathSnapshot;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsPlugin;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsProject;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsStarter;
@@ -39,6 +40,7 @@ import org.twodividedbyzero.idea.findbugs.core.FindBugsState;
 import org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences;
 
 import java.util.List;
+import java.util.Set;
 
 
 /**
@@ -62,7 +64,7 @@ public final class AnalyzeAllModifiedFiles extends AbstractAnalyzeAction {
 
 		boolean enable = false;
 		final List<VirtualFile> modifiedFiles = IdeaUtilImpl.getAllModifiedFiles(e.getDataContext());
-		if (state.isIdle() && !modifiedFiles.isEmpty()) {
+		if (canStart(project, state) && !modifiedFiles.isEmpty()) {
 			for (final VirtualFile virtualFile : modifiedFiles) {
 				if (IdeaUtilImpl.isValidFileType(virtualFile.getFileType())) {
 					enable = true;
@@ -88,7 +90,7 @@ public final class AnalyzeAllModifiedFiles extends AbstractAnalyzeAction {
 			@NotNull final FindBugsPreferences preferences
 	) {
 
-		final VirtualFile[] files = IdeaUtilImpl.getProjectClasspath(e.getDataContext());
+		final Set<String> auxClasspath = AuxClasspathSnapshot.get(IdeaUtilImpl.getModule(e.getDataContext()));
 		final List<VirtualFile> modifiedFiles = IdeaUtilImpl.getAllModifiedFiles(e.getDataContext());
 
 		new FindBugsStarter(project, "Running FindBugs analysis for modified files...", preferences) {
@@ -100,7 +102,7 @@ public final class AnalyzeAllModifiedFiles extends AbstractAnalyzeAction {
 
 			@Override
 			protected void configure(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProject findBugsProject) {
-				findBugsProject.configureAuxClasspathEntries(indicator, files);
+				findBugsProject.configureAuxClasspathSnapshot(indicator, auxClasspath);
 				findBugsProject.configureSourceDirectories(indicator, modifiedFiles);
 				findBugsProject.configureOutputFiles(project, modifiedFiles);
 			}
@@ -34,6 +34,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.core.AuxClasspathSnapshot;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsPlugin;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsProject;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsStarter;
@@ -42,6 +43,7 @@ import org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 
 /**
@@ -65,7 +67,7 @@ public final class AnalyzeChangelistFiles extends AbstractAnalyzeAction {
 
 		boolean enable = false;
 		final List<VirtualFile> modifiedFiles = IdeaUtilImpl.getAllModifiedFiles(e.getDataContext());
-		if (state.isIdle() && !modifiedFiles.isEmpty()) {
+		if (canStart(project, state) && !modifiedFiles.isEmpty()) {
 			for (final VirtualFile virtualFile : modifiedFiles) {
 				if (IdeaUtilImpl.isValidFileType(virtualFile.getFileType())) {
 					enable = true;
@@ -91,7 +93,7 @@ public final class AnalyzeChangelistFiles extends AbstractAnalyzeAction {
 			@NotNull final FindBugsPreferences preferences
 	) {
 
-		final VirtualFile[] files = IdeaUtilImpl.getProjectClasspath(e.getDataContext());
+		final Set<String> auxClasspath = AuxClasspathSnapshot.get(IdeaUtilImpl.getModule(e.getDataContext()));
 		final ChangeList changeList = ChangeListManager.getInstance(project).getDefaultChangeList();
 		final Collection<VirtualFile> modifiedFiles = IdeaUtilImpl.getModifiedFilesByList(changeList, e.getDataContext());
 
@@ -104,7 +106,7 @@ public final class AnalyzeChangelistFiles extends AbstractAnalyzeAction {
 
 			@Override
 			protected void configure(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProject findBugsProject) {
-				findBugsProject.configureAuxClasspathEntries(indicator, files);
+				findBugsProject.configureAuxClasspathSnapshot(indicator, auxClasspath);
 				findBugsProject.configureSourceDirectories(indicator, modifiedFiles);
 				findBugsProject.configureOutputFiles(project, modifiedFiles);
 			}
@@ -33,12 +33,15 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.core.AuxClasspathSnapshot;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsPlugin;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsProject;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsStarter;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsState;
 import org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences;
 
+import java.util.Set;
+
 
 /**
  * $Date$
@@ -61,7 +64,7 @@ public final class AnalyzeClassUnderCursor extends AbstractAnalyzeAction {
 
 		final VirtualFile[] selectedSourceFiles = IdeaUtilImpl.getVirtualFiles(e.getDataContext());
 		boolean enabled = false;
-		if (state.isIdle()) {
+		if (canStart(project, state)) {
 			enabled = selectedSourceFiles != null &&
 					selectedSourceFiles.length > 0 &&
 					selectedSourceFiles[0].isValid() &&
@@ -86,7 +89,7 @@ public final class AnalyzeClassUnderCursor extends AbstractAnalyzeAction {
 			@NotNull final FindBugsPreferences preferences
 	) {
 
-		final VirtualFile[] files = IdeaUtilImpl.getProjectClasspath(e.getDataContext());
+		final Set<String> auxClasspath = AuxClasspathSnapshot.get(IdeaUtilImpl.getModule(e.getDataContext()));
 		final VirtualFile selectedSourceFile = IdeaUtilImpl.getVirtualFile(e.getDataContext());
 		final VirtualFile[] selectedSourceFiles = new VirtualFile[] {selectedSourceFile};
 		final PsiClass psiClass = IdeaUtilImpl.getCurrentClass(e.getDataContext());
@@ -100,9 +103,12 @@ public final class AnalyzeClassUnderCursor extends AbstractAnalyzeAction {
 
 			@Override
 			protected void configure(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProject findBugsProject) {
-				findBugsProject.configureAuxClasspathEntries(indicator, files);
+				findBugsProject.configureAuxClasspathSnapshot(indicator, auxClasspath);
 				findBugsProject.configureSourceDirectories(indicator, selectedSourceFiles);
-				findBugsProject.configureOutputFile(project, psiClass);
+				findBugsProject.configureOutputClasses(project, new PsiClass[] {psiClass});
+				if (findBugsProject.getFileCount() == 0) {
+					findBugsProject.configureOutputFile(project, psiClass);
+				}
 			}
 		}.start();
 	}
@@ -33,6 +33,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.core.AuxClasspathSnapshot;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsPlugin;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsPluginImpl;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsProject;
@@ -40,6 +41,8 @@ import org.twodividedbyzero.idea.findbugs.core.FindBugsStarter;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsState;
 import org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences;
 
+import java.util.Set;
+
 
 /**
  * $Date$
@@ -62,7 +65,7 @@ public final class AnalyzeCurrentEditorFile extends AbstractAnalyzeAction {
 
 		final VirtualFile[] selectedSourceFiles = IdeaUtilImpl.getVirtualFiles(e.getDataContext());
 		boolean enable = false;
-		if (state.isIdle()) {
+		if (canStart(project, state)) {
 			enable = selectedSourceFiles != null &&
 					selectedSourceFiles.length > 0 &&
 					selectedSourceFiles[0].isValid() &&
@@ -86,7 +89,7 @@ public final class AnalyzeCurrentEditorFile extends AbstractAnalyzeAction {
 			@NotNull final FindBugsPreferences preferences
 	) {
 
-		final VirtualFile[] files = IdeaUtilImpl.getProjectClasspath(e.getDataContext());
+		final Set<String> auxClasspath = AuxClasspathSnapshot.get(IdeaUtilImpl.getModule(e.getDataContext()));
 		final VirtualFile[] selectedSourceFiles = IdeaUtilImpl.getVirtualFiles(e.getDataContext());
 		if (selectedSourceFiles == null) {
 			FindBugsPluginImpl.showToolWindowNotifier(project, "No current files", MessageType.WARNING);
@@ -102,9 +105,12 @@ public final class AnalyzeCurrentEditorFile extends AbstractAnalyzeAction {
 
 			@Override
 			protected void configure(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProject findBugsProject) {
-				findBugsProject.configureAuxClasspathEntries(indicator, files);
+				findBugsProject.configureAuxClasspathSnapshot(indicator, auxClasspath);
 				findBugsProject.configureSourceDirectories(indicator, selectedSourceFiles);
-				findBugsProject.configureOutputFiles(project, selectedSourceFiles);
+				findBugsProject.configureOutputClasses(project, selectedSourceFiles);
+				if (findBugsProject.getFileCount() == 0) {
+					findBugsProject.configureOutputFiles(project, selectedSourceFiles);
+				}
 			}
 		}.start();
 	}
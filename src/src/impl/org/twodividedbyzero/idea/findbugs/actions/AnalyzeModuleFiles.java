@@ -33,6 +33,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.core.AuxClasspathSnapshot;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsPlugin;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsPluginImpl;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsProject;
@@ -40,6 +41,8 @@ import org.twodividedbyzero.idea.findbugs.core.FindBugsStarter;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsState;
 import org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences;
 
+import java.util.Set;
+
 
 /**
  * $Date$
@@ -61,7 +64,7 @@ public final class AnalyzeModuleFiles extends AbstractAnalyzeAction {
 	) {
 
 		boolean enable = false;
-		if (state.isIdle()) {
+		if (canStart(project, state)) {
 			enable = null != module;
 		}
 
@@ -86,7 +89,7 @@ public final class AnalyzeModuleFiles extends AbstractAnalyzeAction {
 			FindBugsPluginImpl.showToolWindowNotifier(project, "No current module", MessageType.WARNING);
 			return;
 		}
-		final VirtualFile[] files = IdeaUtilImpl.getProjectClasspath(e.getDataContext());
+		final Set<String> auxClasspath = AuxClasspathSnapshot.get(IdeaUtilImpl.getModule(e.getDataContext()));
 		final VirtualFile[] sourceRoots = IdeaUtilImpl.getModulesSourceRoots(e.getDataContext());
 		final VirtualFile compilerOutputPath = IdeaUtilImpl.getCompilerOutputPath(module);
 		if (compilerOutputPath == null) {
@@ -104,10 +107,16 @@ public final class AnalyzeModuleFiles extends AbstractAnalyzeAction {
 
 			@Override
 			protected void configure(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProject findBugsProject) {
-				findBugsProject.configureAuxClasspathEntries(indicator, files);
+				findBugsProject.configureAuxClasspathSnapshot(indicator, auxClasspath);
 				findBugsProject.configureSourceDirectories(indicator, sourceRoots);
 				findBugsProject.configureOutputFiles(project, indicator, outPath);
 			}
+
+
+			@Override
+			protected boolean isPipelineSupported() {
+				return true;
+			}
 		}.start();
 	}
 }
\ No newline at end of file
@@ -33,6 +33,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.core.AuxClasspathSnapshot;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsPlugin;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsPluginImpl;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsProject;
@@ -40,6 +41,8 @@ import org.twodividedbyzero.idea.findbugs.core.FindBugsStarter;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsState;
 import org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences;
 
+import java.util.Set;
+
 
 /**
  * @author Andre Pfeiler<andrep@twodividedbyzero.org>
@@ -61,7 +64,7 @@ public final class AnalyzePackageFiles extends AbstractAnalyzeAction {
 		final VirtualFile[] selectedSourceFiles = IdeaUtilImpl.getVirtualFiles(e.getDataContext());
 
 		boolean enable = false;
-		if (state.isIdle()) {
+		if (canStart(project, state)) {
 			enable = selectedSourceFiles != null && selectedSourceFiles.length == 1 &&
 					(IdeaUtilImpl.isValidFileType(selectedSourceFiles[0].getFileType()) || selectedSourceFiles[0].isDirectory()) &&
 					null != getPackagePath(selectedSourceFiles, project);
@@ -84,7 +87,7 @@ public final class AnalyzePackageFiles extends AbstractAnalyzeAction {
 			@NotNull final FindBugsPreferences preferences
 	) {
 
-		final VirtualFile[] files = IdeaUtilImpl.getProjectClasspath(e.getDataContext());
+		final Set<String> auxClasspath = AuxClasspathSnapshot.get(IdeaUtilImpl.getModule(e.getDataContext()));
 		final VirtualFile[] selectedSourceFiles = IdeaUtilImpl.getVirtualFiles(e.getDataContext());
 		final VirtualFile packagePath = getPackagePath(selectedSourceFiles, project);
 		if (packagePath == null) {
@@ -105,7 +108,7 @@ public final class AnalyzePackageFiles extends AbstractAnalyzeAction {
 
 				@Override
 				protected void configure(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProject findBugsProject) {
-					findBugsProject.configureAuxClasspathEntries(indicator, files);
+					findBugsProject.configureAuxClasspathSnapshot(indicator, auxClasspath);
 					findBugsProject.configureSourceDirectories(indicator, sourceRoots);
 					findBugsProject.configureOutputFiles(project, indicator, output);
 				}
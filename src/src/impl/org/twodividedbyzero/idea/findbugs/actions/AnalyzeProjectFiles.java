@@ -33,12 +33,15 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.core.AuxClasspathSnapshot;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsPlugin;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsProject;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsStarter;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsState;
 import org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences;
 
+import java.util.Set;
+
 
 /**
  * $Date$
@@ -59,7 +62,7 @@ public final class AnalyzeProjectFiles extends AbstractAnalyzeAction {
 			@NotNull final FindBugsPreferences preferences
 	) {
 
-		final boolean enable = state.isIdle();
+		final boolean enable = canStart(project, state);
 
 		e.getPresentation().setEnabled(enable);
 		e.getPresentation().setVisible(true);
@@ -78,7 +81,7 @@ public final class AnalyzeProjectFiles extends AbstractAnalyzeAction {
 			@NotNull final FindBugsPreferences preferences
 	) {
 
-		final VirtualFile[] files = IdeaUtilImpl.getProjectClasspath(e.getDataContext());
+		final Set<String> auxClasspath = AuxClasspathSnapshot.get(IdeaUtilImpl.getModule(e.getDataContext()));
 		final VirtualFile[] sourceRoots = IdeaUtilImpl.getModulesSourceRoots(e.getDataContext());
 		final String[] outPaths = IdeaUtilImpl.getCompilerOutputUrls(project);
 
@@ -91,10 +94,16 @@ public final class AnalyzeProjectFiles extends AbstractAnalyzeAction {
 
 			@Override
 			protected void configure(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProject findBugsProject) {
-				findBugsProject.configureAuxClasspathEntries(indicator, files);
+				findBugsProject.configureAuxClasspathSnapshot(indicator, auxClasspath);
 				findBugsProject.configureSourceDirectories(indicator, sourceRoots);
 				findBugsProject.configureOutputFiles(project, indicator, outPaths);
 			}
+
+
+			@Override
+			protected boolean isPipelineSupported() {
+				return true;
+			}
 		}.start();
 	}
 }
\ No newline at end of file
@@ -59,6 +59,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.collectors.StatelessClassAdder;
 import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.core.AuxClasspathSnapshot;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsPlugin;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsProject;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsStarter;
@@ -90,7 +91,7 @@ public final class AnalyzeScopeFiles extends AbstractAnalyzeAction {
 			@NotNull final FindBugsPreferences preferences
 	) {
 
-		e.getPresentation().setEnabled(state.isIdle());
+		e.getPresentation().setEnabled(canStart(project, state));
 		e.getPresentation().setVisible(true);
 	}
 
@@ -153,7 +154,7 @@ public final class AnalyzeScopeFiles extends AbstractAnalyzeAction {
 			@NotNull final FindBugsPreferences preferences
 	) {
 
-		final VirtualFile[] files = IdeaUtilImpl.getProjectClasspath(e.getDataContext());
+		final Set<String> auxClasspath = AuxClasspathSnapshot.get(IdeaUtilImpl.getModule(e.getDataContext()));
 		final VirtualFile[] sourceRoots = IdeaUtilImpl.getModulesSourceRoots(e.getDataContext());
 
 		new FindBugsStarter(project, "Running FindBugs analysis...", preferences) {
@@ -165,7 +166,7 @@ public final class AnalyzeScopeFiles extends AbstractAnalyzeAction {
 
 			@Override
 			protected void configure(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProject findBugsProject) {
-				findBugsProject.configureAuxClasspathEntries(indicator, files);
+				findBugsProject.configureAuxClasspathSnapshot(indicator, auxClasspath);
 				findBugsProject.configureSourceDirectories(indicator, sourceRoots);
 				indicator.setText("Collecting files for analysis...");
 				addClasses(indicator, project, scope, findBugsProject);
@@ -197,7 +198,7 @@ public final class AnalyzeScopeFiles extends AbstractAnalyzeAction {
 					if (IdeaUtilImpl.SUPPORTED_FILE_TYPES.contains(file.getFileType())) {
 						final VirtualFile vf = file.getVirtualFile();
 						outputFiles.add(vf.getPath());
-						sca.addContainingClasses(vf);
+						sca.addClassFiles(vf);
 						indicator.setText2("Files collected: " + ++count[0]);
 					}
 				}
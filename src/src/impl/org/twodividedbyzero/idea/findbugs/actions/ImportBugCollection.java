@@ -31,8 +31,6 @@ import com.intellij.openapi.ui.MessageType;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.util.Condition;
 import com.intellij.openapi.wm.ToolWindow;
-import com.intellij.util.Processor;
-import com.intellij.util.containers.TransferToEDTQueue;
 import edu.umd.cs.findbugs.BugCollection;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.Plugin;
@@ -45,10 +43,10 @@ import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.common.EventDispatchThreadHelper;
 import org.twodividedbyzero.idea.findbugs.common.FindBugsPluginConstants;
 import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
-import org.twodividedbyzero.idea.findbugs.common.util.New;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsPlugin;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsPluginImpl;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsState;
+import org.twodividedbyzero.idea.findbugs.core.NewBugInstanceQueue;
 import org.twodividedbyzero.idea.findbugs.gui.PluginGuiCallback;
 import org.twodividedbyzero.idea.findbugs.gui.common.ImportFileDialog;
 import org.twodividedbyzero.idea.findbugs.messages.MessageBusManager;
@@ -58,7 +56,6 @@ import org.twodividedbyzero.idea.findbugs.tasks.BackgroundableTask;
 import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -126,18 +123,12 @@ public final class ImportBugCollection extends AbstractAction {
 		}
 
 		final AtomicBoolean taskCanceled = new AtomicBoolean();
-		final TransferToEDTQueue<Runnable> transferToEDTQueue = new TransferToEDTQueue<Runnable>("Add New Bug Instance", new Processor<Runnable>() {
-			@Override
-			public boolean process(Runnable runnable) {
-				runnable.run();
-				return true;
-			}
-		}, new Condition<Object>() {
+		final NewBugInstanceQueue newBugInstanceQueue = new NewBugInstanceQueue(project, new Condition<Object>() {
 			@Override
 			public boolean value(Object o) {
 				return project.isDisposed() || taskCanceled.get();
 			}
-		}, 500);
+		});
 
 		//Create a task to import the bug collection from XML
 		final BackgroundableTask task = new BackgroundableTask(project, "Importing Findbugs Result", true) {
@@ -179,25 +170,12 @@ public final class ImportBugCollection extends AbstractAction {
 						final double fraction = bugCounter.doubleValue() / projectStats.getTotalBugs();
 						indicator.setFraction(fraction);
 						indicator.setText2("Importing bug '" + bugCount + "' of '" + projectStats.getTotalBugs() + "' - " + bugInstance.getMessageWithoutPrefix());
-						/**
-						 * Guarantee thread visibility *one* time.
-						 */
-						final AtomicReference<BugInstance> bugInstanceRef = New.atomicRef(bugInstance);
-						final AtomicReference<ProjectStats> projectStatsRef = New.atomicRef(projectStats);
-						transferToEDTQueue.offer(new Runnable() {
-							/**
-							 * Invoked by EDT.
-							 */
-							@Override
-							public void run() {
-								MessageBusManager.publishNewBugInstance(project, bugInstanceRef.get(), projectStatsRef.get());
-							}
-						});
+						newBugInstanceQueue.offer(bugInstance, projectStats);
 					}
 
 					EventDispatchThreadHelper.invokeLater(new Runnable() {
 						public void run() {
-							transferToEDTQueue.drain();
+							newBugInstanceQueue.drain();
 							FindBugsPluginImpl.showToolWindowNotifier(project, "Imported bug collection from '" + fileToImport + "'.", MessageType.INFO);
 						}
 					});
@@ -31,6 +31,7 @@ import com.intellij.psi.util.PsiTreeUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.common.FindBugsPluginConstants;
+import org.twodividedbyzero.idea.findbugs.common.util.ClassFileUtil;
 import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
 
 import java.io.File;
@@ -60,23 +61,38 @@ public abstract class AbstractClassAdder {
 	abstract void put(@NotNull final String fqp, @NotNull final PsiElement element);
 
 
+	/**
+	 * @return true if each inner and anonymous class must be put with its own PSI element (PSI walk), otherwise
+	 * their class files are listed from the compiler output (see {@link ClassFileUtil#findNestedClassFiles(File, String, String)})
+	 * and put with the PSI element of the top level class
+	 */
+	boolean isPsiElementRequired() {
+		return true;
+	}
+
+
 	public final void addContainingClasses(@NotNull final VirtualFile virtualFile) {
 
 		final PsiFile psiFile = _psiManager.findFile(virtualFile);
 
 		if (psiFile instanceof PsiClassOwner) {
+			final VirtualFile compilerOutputPath = IdeaUtilImpl.getCompilerOutputPath(virtualFile, _project);
+			if (compilerOutputPath == null) {
+				return;
+			}
+			final String compileOutputDir = compilerOutputPath.getPresentableUrl();
 			final PsiClassOwner psiClassOwner = (PsiClassOwner) psiFile;
 			final PsiClass[] psiClasses = psiClassOwner.getClasses();
 
 			for (final PsiClass psiClass : psiClasses) {
-				final VirtualFile compilerOutputPath = IdeaUtilImpl.getCompilerOutputPath(virtualFile, _project);
-				if (compilerOutputPath == null) {
-					continue;
-				}
-				final String fqp = buildFullQualifiedPath(compilerOutputPath.getPresentableUrl(), psiClass);
+				final String fqp = buildFullQualifiedPath(compileOutputDir, psiClass);
 				put(fqp, psiClass);
-				addAnonymousClasses(psiClass, fqp);
-				addInnerClasses(psiClass, fqp);
+				if (isPsiElementRequired()) {
+					addAnonymousClasses(psiClass, fqp);
+					addInnerClasses(psiClass, fqp);
+				} else {
+					addNestedClassFiles(psiClass, fqp, virtualFile.getName());
+				}
 			}
 		}
 	}
@@ -99,6 +115,12 @@ public abstract class AbstractClassAdder {
 		final PsiFile psiFile = _psiManager.findFile(virtualFile);
 
 		if (psiFile instanceof PsiClassOwner) {
+			final VirtualFile compilerOutputPath = IdeaUtilImpl.getCompilerOutputPath(virtualFile, _project);
+			if (compilerOutputPath == null) {
+				LOGGER.warn("No output path specified for " + virtualFile + " in " + _project);
+				return; // f. e. project/module compiled and then compiler output path removed (empty text field)
+			}
+			final String compileOutputDir = compilerOutputPath.getPresentableUrl();
 			final PsiClassOwner psiClassOwner = (PsiClassOwner) psiFile;
 			final PsiClass[] psiClasses = psiClassOwner.getClasses();
 
@@ -108,13 +130,7 @@ public abstract class AbstractClassAdder {
 				final String s1 = psiClass.getName();
 				assert s != null;
 
-				final VirtualFile compilerOutputPath = IdeaUtilImpl.getCompilerOutputPath(virtualFile, _project);
-				if (compilerOutputPath == null) {
-					LOGGER.warn("No output path specified for " + virtualFile + " in " + _project);
-					return; // f. e. project/module compiled and then compiler output path removed (empty text field)
-				}
-
-				final String fqp = buildFullQualifiedPath(compilerOutputPath.getPresentableUrl(), psiClass);
+				final String fqp = buildFullQualifiedPath(compileOutputDir, psiClass);
 				if (s.equals(s1)) {
 					put(fqp, psiClass);
 				} else {
@@ -127,6 +143,22 @@ public abstract class AbstractClassAdder {
 	}
 
 
+	/**
+	 * No PSI walk and no read lock needed; also works for Scala and Groovy output, whose class file names
+	 * do not follow the Java numbering of anonymous classes.
+	 */
+	private void addNestedClassFiles(final PsiClass psiClass, final String fullQualifiedPath, final String sourceFileName) {
+		final File classFile = new File(fullQualifiedPath);
+		final File dir = classFile.getParentFile();
+		if (dir == null) {
+			return;
+		}
+		for (final String path : ClassFileUtil.findNestedClassFiles(dir, classFile.getName(), sourceFileName)) {
+			put(path.substring(0, path.length() - CLASS_FILE_SUFFIX.length()), psiClass);
+		}
+	}
+
+
 	private void addInnerClasses(final PsiClass psiClass, final String fullQualifiedPath) {
 		addInnerClasses(psiClass, fullQualifiedPath, null);
 	}
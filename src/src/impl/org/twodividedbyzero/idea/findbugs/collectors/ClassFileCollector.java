@@ -0,0 +1,196 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.collectors;
+
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.twodividedbyzero.idea.findbugs.common.util.ClassFileUtil;
+import org.twodividedbyzero.idea.findbugs.core.FindBugsProject;
+import org.twodividedbyzero.idea.findbugs.core.FindBugsState;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Collects the class files of output directories.
+ * <p>
+ * The directories of one collection run are listed in parallel by one thread pool, files are recognized by the {@code .class} suffix only
+ * (no file type lookup and no file system call per class file). The calling thread updates the
+ * progress in fixed intervals, checks for cancellation and finally adds the files sorted by path
+ * to the {@link FindBugsProject} (which is not thread safe).
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+public final class ClassFileCollector {
+
+	private static final Logger LOGGER = Logger.getInstance(ClassFileCollector.class.getName());
+
+	private static final long PROGRESS_INTERVAL_MILLIS = 100;
+
+	/**
+	 * Listing directories is I/O bound, more threads do not help.
+	 */
+	private static final int MAX_THREADS = 4;
+
+	private final ExecutorService _executor;
+	private final Queue<String> _files;
+	private final AtomicInteger _fileCount;
+	private final AtomicInteger _pendingDirs;
+	private final Object _lock;
+	private volatile boolean _canceled;
+
+
+	private ClassFileCollector(@NotNull final ExecutorService executor) {
+		_executor = executor;
+		_files = new ConcurrentLinkedQueue<String>();
+		_fileCount = new AtomicInteger();
+		_pendingDirs = new AtomicInteger();
+		_lock = new Object();
+	}
+
+
+	/**
+	 * @param classesDirs output directories, directories which do not exist are ignored
+	 * @throws ProcessCanceledException if the indicator was canceled or the analysis is aborting
+	 */
+	public static void addFiles(
+			@NotNull final Project project,
+			@NotNull final ProgressIndicator indicator,
+			@NotNull final FindBugsProject findBugsProject,
+			@NotNull final Collection<File> classesDirs
+	) {
+		final List<File> dirs = new ArrayList<File>(classesDirs.size());
+		for (final File classesDir : classesDirs) {
+			if (classesDir.isDirectory()) {
+				dirs.add(classesDir);
+			}
+		}
+		if (dirs.isEmpty()) {
+			return;
+		}
+		final long start = System.currentTimeMillis();
+		final int threads = Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors());
+		final ClassFileCollector collector = new ClassFileCollector(Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger _count = new AtomicInteger();
+			@Override
+			public Thread newThread(@NotNull final Runnable r) {
+				final Thread ret = new Thread(r, "FindBugs class file collector #" + _count.incrementAndGet());
+				ret.setDaemon(true);
+				return ret;
+			}
+		}));
+
+		final List<String> files;
+		try {
+			for (final File dir : dirs) {
+				collector.submit(dir);
+			}
+			files = collector.await(project, indicator);
+		} finally {
+			collector._executor.shutdownNow();
+		}
+
+		for (final String file : files) {
+			findBugsProject.addFile(file);
+		}
+		indicator.setText2("Files collected: " + files.size());
+		LOGGER.debug("Collected " + files.size() + " class file(s) of " + dirs.size() + " output directories in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+
+	private void submit(@NotNull final File dir) {
+		_pendingDirs.incrementAndGet();
+		_executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if (!_canceled) {
+						list(dir);
+					}
+				} finally {
+					if (_pendingDirs.decrementAndGet() == 0) {
+						synchronized (_lock) {
+							_lock.notifyAll();
+						}
+					}
+				}
+			}
+		});
+	}
+
+
+	private void list(@NotNull final File dir) {
+		final String[] names = dir.list();
+		if (names == null) {
+			return;
+		}
+		for (final String name : names) {
+			if (name.endsWith(ClassFileUtil.CLASS_FILE_SUFFIX)) {
+				_files.add(new File(dir, name).getAbsolutePath());
+				_fileCount.incrementAndGet();
+			} else {
+				final File file = new File(dir, name);
+				if (file.isDirectory()) {
+					submit(file);
+				}
+			}
+		}
+	}
+
+
+	@NotNull
+	private List<String> await(@NotNull final Project project, @NotNull final ProgressIndicator indicator) {
+		while (_pendingDirs.get() > 0) {
+			if (indicator.isCanceled() || FindBugsState.get(project).isAborting()) {
+				_canceled = true;
+				throw new ProcessCanceledException();
+			}
+			indicator.setText2("Files collected: " + _fileCount.get());
+			try {
+				synchronized (_lock) {
+					if (_pendingDirs.get() > 0) {
+						_lock.wait(PROGRESS_INTERVAL_MILLIS);
+					}
+				}
+			} catch (final InterruptedException e) {
+				_canceled = true;
+				Thread.currentThread().interrupt();
+				throw new ProcessCanceledException();
+			}
+		}
+		final List<String> ret = new ArrayList<String>(_files);
+		Collections.sort(ret);
+		return ret;
+	}
+}
@@ -21,11 +21,15 @@ package org.twodividedbyzero.idea.findbugs.collectors;
 
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import org.jetbrains.annotations.NotNull;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
+import org.twodividedbyzero.idea.findbugs.core.ClassFileIndex;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsProject;
 
 import java.io.File;
+import java.util.List;
 
 
 /**
@@ -37,11 +41,54 @@ public final class StatelessClassAdder extends AbstractClassAdder {
 
 	private static final Logger LOGGER = Logger.getInstance(StatelessClassAdder.class.getName());
 	private final FindBugsProject _findBugsProject;
+	private final ClassFileIndex _classFileIndex;
+	private List<String> _added;
 
 
 	public StatelessClassAdder(@NotNull final FindBugsProject findBugsProject, @NotNull final Project project) {
 		super(project);
 		_findBugsProject = findBugsProject;
+		_classFileIndex = ClassFileIndex.getInstance(project);
+	}
+
+
+	/**
+	 * Adds the class files recorded by {@link ClassFileIndex} without PSI lookup. If {@code virtualFile}
+	 * is not indexed (or outdated), {@link #addContainingClasses(VirtualFile)} is used and the class files
+	 * found are recorded.
+	 *
+	 * @param virtualFile source file
+	 */
+	public void addClassFiles(@NotNull final VirtualFile virtualFile) {
+		if (_classFileIndex == null) {
+			addContainingClasses(virtualFile);
+			return;
+		}
+		final List<String> classFiles = _classFileIndex.get(virtualFile);
+		if (classFiles != null) {
+			for (final String classFile : classFiles) {
+				_findBugsProject.addFile(classFile);
+			}
+			return;
+		}
+		_added = New.arrayList();
+		try {
+			addContainingClasses(virtualFile);
+			if (!_added.isEmpty()) {
+				_classFileIndex.put(virtualFile, _added);
+			}
+		} finally {
+			_added = null;
+		}
+	}
+
+
+	/**
+	 * Only the class files are needed.
+	 */
+	@Override
+	boolean isPsiElementRequired() {
+		return false;
 	}
 
 
@@ -50,6 +97,9 @@ public final class StatelessClassAdder extends AbstractClassAdder {
 		final String fqn = fqp + CLASS_FILE_SUFFIX;
 		if (new File(fqn).exists()) {
 			_findBugsProject.addFile(fqn);
+			if (_added != null) {
+				_added.add(fqn);
+			}
 			LOGGER.debug("adding class file: " + fqn);
 		} else {
 			LOGGER.debug("class file: " + fqn + " does not exists. maybe an inner/anonymous class? try to recompile your sources.");
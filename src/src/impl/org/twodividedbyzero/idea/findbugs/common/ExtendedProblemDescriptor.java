@@ -22,16 +22,23 @@ import com.intellij.codeInspection.ProblemDescriptor;
 import com.intellij.codeInspection.ProblemHighlightType;
 import com.intellij.codeInspection.QuickFix;
 import com.intellij.lang.annotation.ProblemGroup;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.RangeMarker;
 import com.intellij.openapi.editor.colors.TextAttributesKey;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
 import edu.umd.cs.findbugs.BugInstance;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.common.util.BugInstanceUtil;
 import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
-import org.twodividedbyzero.idea.findbugs.gui.tree.model.BugInstanceNode;
 
 
 /**
@@ -44,21 +51,35 @@ import org.twodividedbyzero.idea.findbugs.gui.tree.model.BugInstanceNode;
 public class ExtendedProblemDescriptor implements ProblemDescriptor, ProblemGroup {
 
 
-	private final PsiFile _psiFile;
-	private PsiElement _psiElement;
+	private final Project _project;
+	/**
+	 * Do not keep PSI, it pins the whole PSI tree of the file.
+	 */
+	private final VirtualFile _virtualFile;
+	private SmartPsiElementPointer<PsiElement> _psiElement;
+	/**
+	 * Tracks the reported lines while the document is edited, see {@link #getRangeMarker()}.
+	 */
+	private RangeMarker _rangeMarker;
 	private int _lineStart;
 	private int _lineEnd;
 	private int _hash;
 
-	private final BugInstanceNode _bugInstanceNode;
+	/**
+	 * Not the tree node, the leaf nodes are created when their group is expanded.
+	 */
+	private final BugInstance _bugInstance;
 
 
-	public ExtendedProblemDescriptor(final PsiFile psiFile, final BugInstanceNode bugInstanceNode) {
-		_psiFile = psiFile;
-		_bugInstanceNode = bugInstanceNode;
-		final int[] lines = BugInstanceUtil.getSourceLines(_bugInstanceNode);
+	public ExtendedProblemDescriptor(@NotNull final Project project, @NotNull final VirtualFile virtualFile, @NotNull final BugInstance bugInstance) {
+		_project = project;
+		_virtualFile = virtualFile;
+		_bugInstance = bugInstance;
+		final int[] lines = BugInstanceUtil.getSourceLines(_bugInstance);
 		_lineStart = lines[0] - 1;
 		_lineEnd = lines[1] - 1;
+		// the document of an open file may be edited before the element is requested the first time
+		getRangeMarker();
 	}
 
 
@@ -68,7 +89,7 @@ public class ExtendedProblemDescriptor implements ProblemDescriptor, ProblemGrou
 
 
 	public BugInstance getBugInstance() {
-		return _bugInstanceNode.getBugInstance();
+		return _bugInstance;
 	}
 
 
@@ -129,16 +150,37 @@ public class ExtendedProblemDescriptor implements ProblemDescriptor, ProblemGrou
 	}
 
 
+	/**
+	 * Must be called inside a read action.
+	 *
+	 * @return null if the file or the element does not exist anymore
+	 */
+	@Nullable
 	public PsiElement getPsiElement() {
-		if (_psiElement != null) {
-			return _psiElement;
+		final RangeMarker marker = getRangeMarker();
+		final SmartPsiElementPointer<PsiElement> pointer = _psiElement;
+		if (pointer != null) {
+			final PsiElement ret = pointer.getElement();
+			if (ret != null && isAtLine(ret, marker)) {
+				return ret;
+			}
+		}
+		final PsiFile psiFile = getPsiFile();
+		if (psiFile == null) {
+			return null;
 		}
+		final PsiElement ret;
 		if(_lineStart < 0) {
-			_psiElement =  IdeaUtilImpl.findAnonymousClassPsiElement(_bugInstanceNode, _psiFile.getProject());
+			ret = IdeaUtilImpl.findAnonymousClassPsiElement(psiFile, _bugInstance, _project);
+		} else if (marker != null && marker.isValid()) {
+			ret = IdeaUtilImpl.getElementAtLine(psiFile, marker.getDocument().getLineNumber(marker.getStartOffset()));
 		} else {
-			_psiElement = IdeaUtilImpl.getElementAtLine(_psiFile, _lineStart);
+			ret = IdeaUtilImpl.getElementAtLine(psiFile, _lineStart);
 		}
-		return _psiElement;
+		if (ret != null) {
+			_psiElement = SmartPointerManager.getInstance(_project).createSmartPsiElementPointer(ret);
+		}
+		return ret;
 	}
 
 
@@ -180,8 +222,69 @@ public class ExtendedProblemDescriptor implements ProblemDescriptor, ProblemGrou
 	}
 
 
+	private static boolean isAtLine(@NotNull final PsiElement element, @Nullable final RangeMarker marker) {
+		if (marker == null || !marker.isValid()) {
+			return true;
+		}
+		final Document document = marker.getDocument();
+		final int offset = element.getTextOffset();
+		return offset <= document.getTextLength() && document.getLineNumber(offset) == document.getLineNumber(marker.getStartOffset());
+	}
+
+
+	/**
+	 * The marker is created for the reported lines as soon as the document of the file is loaded
+	 * (usually when the file is opened) and is updated by the platform on each document change.
+	 *
+	 * @return null if there is no line or the document is not loaded
+	 */
+	@Nullable
+	private synchronized RangeMarker getRangeMarker() {
+		if (_rangeMarker == null && _lineStart >= 0 && _virtualFile.isValid()) {
+			final Document document = FileDocumentManager.getInstance().getCachedDocument(_virtualFile);
+			if (document != null && _lineStart < document.getLineCount()) {
+				final int lineEnd = Math.min(Math.max(_lineStart, _lineEnd), document.getLineCount() - 1);
+				_rangeMarker = document.createRangeMarker(document.getLineStartOffset(_lineStart), document.getLineEndOffset(lineEnd));
+			}
+		}
+		return _rangeMarker;
+	}
+
+
+	/**
+	 * Releases the range marker, must be called when the problem is dropped.
+	 */
+	public synchronized void dispose() {
+		if (_rangeMarker != null) {
+			_rangeMarker.dispose();
+			_rangeMarker = null;
+		}
+	}
+
+
+	/**
+	 * Must be called inside a read action.
+	 *
+	 * @return null if the file does not exist anymore
+	 */
+	@Nullable
 	public PsiFile getPsiFile() {
-		return _psiFile;
+		if (!_virtualFile.isValid()) {
+			return null;
+		}
+		return PsiManager.getInstance(_project).findFile(_virtualFile);
+	}
+
+
+	@NotNull
+	public VirtualFile getVirtualFile() {
+		return _virtualFile;
+	}
+
+
+	@NotNull
+	public Project getProject() {
+		return _project;
 	}
 
 
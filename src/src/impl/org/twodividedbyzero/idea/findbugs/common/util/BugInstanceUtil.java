@@ -33,12 +33,9 @@ import edu.umd.cs.findbugs.SourceLineAnnotation;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.twodividedbyzero.idea.findbugs.gui.tree.GroupBy;
 import org.twodividedbyzero.idea.findbugs.gui.tree.model.BugInstanceNode;
 
 import java.awt.EventQueue;
-import java.util.ArrayList;
-import java.util.List;
 
 
 /**
@@ -208,34 +205,4 @@ public class BugInstanceUtil {
 
 		return IdeaUtilImpl.getPsiFile(psiClass[0]);
 	}
-
-
-	private static List<String> getBugInstanceGroupPath(final BugInstance bugInstance, final GroupBy[] groupBy) {
-		final List<String> result = new ArrayList<String>();
-		for (final GroupBy group : groupBy) {
-			result.add(GroupBy.getGroupName(group, bugInstance));
-		}
-
-		//Collections.reverse(result);
-		return result;
-	}
-
-
-	public static String[] getGroupPath(final BugInstance bugInstance, final int depth, final GroupBy[] groupBy) {
-		final List<String> path = getBugInstanceGroupPath(bugInstance, groupBy);
-		final String[] result = new String[depth];
-
-		for (int i = 0; i < depth; i++) {
-			final String str = path.get(i);
-			result[i] = str;
-		}
-
-		return result;
-	}
-
-
-	public static String[] getFullGroupPath(final BugInstance bugInstance, final GroupBy[] groupBy) {
-		final List<String> path = getBugInstanceGroupPath(bugInstance, groupBy);
-		return getGroupPath(bugInstance, path.size(), groupBy);
-	}
 }
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.common.util;
+
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Class file helpers based on the bundled ASM.
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+public final class ClassFileUtil {
+
+	private static final Logger LOGGER = Logger.getInstance(ClassFileUtil.class.getName());
+	public static final String CLASS_FILE_SUFFIX = ".class";
+	private static final int CONSTANT_CLASS = 7;
+
+
+	private ClassFileUtil() {
+	}
+
+
+	/**
+	 * @param bytes class file content
+	 * @return dotted class name or null if {@code bytes} is not a valid class file
+	 */
+	@Nullable
+	public static String getClassName(@NotNull final byte[] bytes) {
+		try {
+			return new ClassReader(bytes).getClassName().replace('/', '.');
+		} catch (final RuntimeException e) {
+			LOGGER.debug("Invalid class file", e);
+			return null;
+		}
+	}
+
+
+	/**
+	 * Reads the {@code CONSTANT_Class} entries of the constant pool, so all classes whose members are
+	 * accessed, which are extended, implemented, instantiated or cast to. Array classes are resolved to
+	 * their element class.
+	 *
+	 * @param bytes class file content
+	 * @return dotted names of the referenced classes without the class itself, or null if
+	 * {@code bytes} is not a valid class file
+	 */
+	@Nullable
+	public static Set<String> getReferencedClassNames(@NotNull final byte[] bytes) {
+		try {
+			final ClassReader reader = new ClassReader(bytes);
+			final char[] buf = new char[reader.getMaxStringLength()];
+			final String className = reader.getClassName();
+			final Set<String> ret = New.set();
+			for (int i = 1; i < reader.getItemCount(); i++) {
+				final int offset = reader.getItem(i);
+				if (offset == 0 || reader.b[offset - 1] != CONSTANT_CLASS) {
+					continue; // second slot of long/double or not a class
+				}
+				String name = reader.readUTF8(offset, buf);
+				if (name.startsWith("[")) {
+					final int start = name.lastIndexOf('[') + 1;
+					if (name.charAt(start) != 'L') {
+						continue; // primitive array
+					}
+					name = name.substring(start + 1, name.length() - 1);
+				}
+				if (!name.equals(className)) {
+					ret.add(name.replace('/', '.'));
+				}
+			}
+			return ret;
+		} catch (final RuntimeException e) {
+			LOGGER.debug("Invalid class file", e);
+			return null;
+		}
+	}
+
+
+	/**
+	 * Reads only the class file header.
+	 *
+	 * @param classFile ..
+	 * @return dotted class name or null if {@code classFile} is not readable or not a valid class file
+	 */
+	@Nullable
+	public static String getClassName(@NotNull final File classFile) {
+		InputStream in = null;
+		try {
+			in = new FileInputStream(classFile);
+			return new ClassReader(in).getClassName().replace('/', '.');
+		} catch (final IOException e) {
+			LOGGER.debug("Could not read class file: " + classFile, e);
+			return null;
+		} catch (final RuntimeException e) {
+			LOGGER.debug("Invalid class file: " + classFile, e);
+			return null;
+		} finally {
+			IoUtil.safeClose(in);
+		}
+	}
+
+
+	/**
+	 * @param classFilePath absolute path of a class file, like {@code /out/a/b/C.class}
+	 * @param className     dotted class name, like {@code a.b.C}
+	 * @return the output root, like {@code /out}, or null if the path does not match the class name
+	 */
+	@Nullable
+	public static String getOutputRoot(@NotNull final String classFilePath, @NotNull final String className) {
+		final String relativePath = className.replace('.', File.separatorChar) + CLASS_FILE_SUFFIX;
+		final String normalized = classFilePath.replace('/', File.separatorChar);
+		if (normalized.length() > relativePath.length() && normalized.endsWith(relativePath)) {
+			return normalized.substring(0, normalized.length() - relativePath.length() - 1);
+		}
+		return null;
+	}
+
+
+	/**
+	 * Lists the {@code C$*.class} files in the directory of {@code C.class} and reads each candidate:
+	 * it belongs to {@code sourceFileName} if its {@code SourceFile} attribute matches or, if compiled
+	 * without debug information, if its {@code InnerClasses} attribute declares it as nested class.
+	 * So top level classes like {@code C$D} of another source file are skipped, while Scala module
+	 * ({@code C$}) and Groovy closure classes are found.
+	 *
+	 * @param dir            directory of the class file
+	 * @param simpleName     class name without package, like {@code C}
+	 * @param sourceFileName like {@code C.java}
+	 * @return paths of the nested, anonymous and synthetic class files of {@code C}
+	 */
+	@NotNull
+	public static List<String> findNestedClassFiles(@NotNull final File dir, @NotNull final String simpleName, @NotNull final String sourceFileName) {
+		final String nestedPrefix = simpleName + '$';
+		final List<String> ret = New.arrayList();
+		final String[] names = dir.list();
+		if (names != null) {
+			for (final String name : names) {
+				if (name.startsWith(nestedPrefix) && name.endsWith(CLASS_FILE_SUFFIX)) {
+					final File classFile = new File(dir, name);
+					if (isFromSource(classFile, sourceFileName)) {
+						ret.add(classFile.getPath());
+					}
+				}
+			}
+		}
+		return ret;
+	}
+
+
+	/**
+	 * @param classFile ..
+	 * @return the {@code SourceFile} attribute, like {@code C.java}, or null if {@code classFile}
+	 * is not readable or compiled without debug information
+	 */
+	@Nullable
+	public static String getSourceFileName(@NotNull final File classFile) {
+		InputStream in = null;
+		try {
+			in = new FileInputStream(classFile);
+			final SourceVisitor visitor = new SourceVisitor();
+			new ClassReader(in).accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+			return visitor._source;
+		} catch (final IOException e) {
+			LOGGER.debug("Could not read class file: " + classFile, e);
+			return null;
+		} catch (final RuntimeException e) {
+			LOGGER.debug("Invalid class file: " + classFile, e);
+			return null;
+		} finally {
+			IoUtil.safeClose(in);
+		}
+	}
+
+
+	private static boolean isFromSource(@NotNull final File classFile, @NotNull final String sourceFileName) {
+		InputStream in = null;
+		try {
+			in = new FileInputStream(classFile);
+			final SourceVisitor visitor = new SourceVisitor();
+			new ClassReader(in).accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+			return visitor._source != null ? sourceFileName.equals(visitor._source) : visitor._nested;
+		} catch (final IOException e) {
+			LOGGER.debug("Could not read class file: " + classFile, e);
+			return false;
+		} catch (final RuntimeException e) {
+			LOGGER.debug("Invalid class file: " + classFile, e);
+			return false;
+		} finally {
+			IoUtil.safeClose(in);
+		}
+	}
+
+
+	private static final class SourceVisitor extends ClassVisitor {
+
+		private String _name;
+		private String _source;
+		private boolean _nested;
+
+
+		SourceVisitor() {
+			super(Opcodes.ASM5);
+		}
+
+
+		@Override
+		public void visit(final int version, final int access, final String name, final String signature, final String superName, final String[] interfaces) {
+			_name = name;
+		}
+
+
+		@Override
+		public void visitSource(final String source, final String debug) {
+			_source = source;
+		}
+
+
+		@Override
+		public void visitInnerClass(final String name, final String outerName, final String innerName, final int access) {
+			if (name.equals(_name)) {
+				_nested = true;
+			}
+		}
+	}
+}
@@ -67,6 +67,7 @@ import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiMethod;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.PsiTreeUtil;
+import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import gnu.trove.THashSet;
 import org.jetbrains.annotations.NotNull;
@@ -595,7 +596,8 @@ public final class IdeaUtilImpl {
 
 
 	/**
-	 * Find a PsiClass using {@link GlobalSearchScope#allScope(com.intellij.openapi.project.Project)} }
+	 * Find a PsiClass using {@link GlobalSearchScope#projectScope(com.intellij.openapi.project.Project)}
+	 * and, if not found, {@link GlobalSearchScope#allScope(com.intellij.openapi.project.Project)}.
 	 *
 	 * @param project   the idea project to search in
 	 * @param classname like java/lang/Object.java or java.lang.Object.java or without file extension
@@ -605,8 +607,11 @@ public final class IdeaUtilImpl {
 	public static PsiClass findJavaPsiClass(@NotNull final Project project, @NotNull final String classname) {
 		final String fqn = removeExtension(classname);
 		final String dottedName = fqn.contains("/") ? fqn.replace('/', '.') : fqn;
-		final GlobalSearchScope scope = GlobalSearchScope.allScope(project);
-		return findJavaPsiClass(project, dottedName, scope);
+		final PsiClass ret = findJavaPsiClass(project, dottedName, GlobalSearchScope.projectScope(project));
+		if (ret != null) {
+			return ret;
+		}
+		return findJavaPsiClass(project, dottedName, GlobalSearchScope.allScope(project));
 	}
 
 
@@ -728,8 +733,14 @@ public final class IdeaUtilImpl {
 
 	@Nullable
 	public static PsiElement findAnonymousClassPsiElement(@Nullable final PsiFileSystemItem psiFile, @NotNull final BugInstanceNode bugInstanceNode, @NotNull final Project project) {
+		return findAnonymousClassPsiElement(psiFile, bugInstanceNode.getBugInstance(), project);
+	}
+
+
+	@Nullable
+	public static PsiElement findAnonymousClassPsiElement(@Nullable final PsiFileSystemItem psiFile, @NotNull final BugInstance bugInstance, @NotNull final Project project) {
 		if (psiFile != null) {
-			final String classNameToFind = BugInstanceUtil.getSimpleClassName(bugInstanceNode.getBugInstance());
+			final String classNameToFind = BugInstanceUtil.getSimpleClassName(bugInstance);
 			final ClassCollector cc = new ClassCollector(project);
 			cc.addContainingClasses(psiFile.getVirtualFile());
 			final Map<String, PsiElement> classes = cc.getClasses();
@@ -0,0 +1,583 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.core;
+
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.Alarm;
+import edu.umd.cs.findbugs.BugCollection;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.ClassAnnotation;
+import edu.umd.cs.findbugs.DetectorFactory;
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.Version;
+import edu.umd.cs.findbugs.config.UserPreferences;
+import org.dom4j.DocumentException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.twodividedbyzero.idea.findbugs.common.util.ClassFileUtil;
+import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.common.util.IoUtil;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
+import org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * Persistent per project cache of the bugs reported for each analyzed class file.
+ * <p>
+ * A class file is identified by the hash of its bytes; all entries are bound to a fingerprint
+ * of the effective configuration (detectors, plugins and effort). If the fingerprint changes,
+ * the whole cache is discarded. Each entry is also bound to the state of the aux classpath
+ * it was analyzed with (see {@link #auxState(Collection)}); the entry is used as long as these
+ * aux classpath entries are unchanged, so the differing aux classpaths of the analysis scopes
+ * (module, project, automake) do not invalidate each other. Dependents of changed classes are
+ * analyzed even if unchanged (see {@link FindBugsProject#isDependentFile(String)}). The cached bugs are unfiltered,
+ * so filter settings are not part of the fingerprint (see {@link ResultFilter}).
+ * <p>
+ * The cache is saved {@link #SAVE_DELAY_MS delayed} after the last update and when the project is closed.
+ * <p>
+ * Can be disabled with {@code -Didea.findbugs.cache.enabled=false}.
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+final class AnalysisResultCache {
+
+	private static final Logger LOGGER = Logger.getInstance(AnalysisResultCache.class.getName());
+
+	private static final boolean ENABLED = Boolean.valueOf(System.getProperty("idea.findbugs.cache.enabled", "true"));
+	private static final String FORMAT_VERSION = "3";
+	private static final String INDEX_FILE_NAME = "index.properties";
+	private static final String BUGS_FILE_NAME = "bugs.xml";
+	private static final String FINGERPRINT_KEY = "#fingerprint";
+	private static final String AUX_STATE_KEY_PREFIX = "#aux.";
+	private static final int SAVE_DELAY_MS = 30000;
+	private static final Map<Project, AnalysisResultCache> CACHE_BY_PROJECT = New.weakHashMap();
+
+	private final File _dir;
+	private final Alarm _saveAlarm;
+	private String _fingerprint;
+	private Map<String, Entry> _entries;
+	/**
+	 * Aux classpath states by id (the hash of the state).
+	 */
+	private Map<String, String> _auxStates;
+	private boolean _changed;
+
+
+	private AnalysisResultCache(@NotNull final File dir) {
+		_dir = dir;
+		_saveAlarm = new Alarm(Alarm.ThreadToUse.SHARED_THREAD);
+	}
+
+
+	/**
+	 * @param project ..
+	 * @return null if the cache is disabled
+	 */
+	@Nullable
+	static AnalysisResultCache getInstance(@NotNull final Project project) {
+		if (!ENABLED) {
+			return null;
+		}
+		synchronized (CACHE_BY_PROJECT) {
+			AnalysisResultCache ret = CACHE_BY_PROJECT.get(project);
+			if (ret == null) {
+				// PathManager.getSystemPath() may return relative path
+				final File systemPath = new File(PathManager.getSystemPath()).getAbsoluteFile();
+				ret = new AnalysisResultCache(new File(systemPath, "findbugs-idea" + File.separatorChar + "cache" + File.separatorChar + project.getLocationHash()));
+				CACHE_BY_PROJECT.put(project, ret);
+			}
+			return ret;
+		}
+	}
+
+
+	/**
+	 * Invoked by {@link FindBugsCompileAfterHook} when the project is closed. Saves pending
+	 * changes of the cache of {@code project} and releases it.
+	 *
+	 * @param project ..
+	 */
+	static void dispose(@NotNull final Project project) {
+		final AnalysisResultCache cache;
+		synchronized (CACHE_BY_PROJECT) {
+			cache = CACHE_BY_PROJECT.remove(project);
+		}
+		if (cache != null) {
+			cache._saveAlarm.cancelAllRequests();
+			cache.save();
+		}
+	}
+
+
+	/**
+	 * Removes all unchanged class files from {@code findBugsProject}. The removed class files are still
+	 * resolvable by FindBugs because their output roots are added as aux classpath entries.
+	 *
+	 * @param indicator       ..
+	 * @param findBugsProject configured project
+	 * @param fingerprint     see {@link #fingerprint(FindBugsPreferences, UserPreferences)}
+	 * @return the cached bugs and the class files which must be analyzed
+	 */
+	@NotNull
+	synchronized Lookup lookup(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProject findBugsProject, @NotNull final String fingerprint) {
+		indicator.setText("Checking analysis cache...");
+		ensureLoaded(fingerprint);
+
+		final String auxState = auxState(findBugsProject.getAuxClasspathEntryList());
+		final Lookup ret = new Lookup(fingerprint, auxState);
+		final Map<String, Boolean> validByAuxStateId = New.map();
+		validByAuxStateId.put(ret._auxStateId, true);
+		final Map<String, String> currentStates = New.map();
+		final Set<String> outputRoots = new TreeSet<String>();
+		for (int i = findBugsProject.getFileCount() - 1; i >= 0; i--) {
+			final String path = findBugsProject.getFile(i);
+			if (!path.endsWith(ClassFileUtil.CLASS_FILE_SUFFIX)) {
+				continue;
+			}
+			final byte[] bytes;
+			try {
+				bytes = FileUtil.loadFileBytes(new File(path));
+			} catch (final IOException e) {
+				LOGGER.debug("Could not read class file: " + path, e);
+				continue;
+			}
+			final String className = ClassFileUtil.getClassName(bytes);
+			if (className == null) {
+				continue;
+			}
+			final String hash = toHex(digest().digest(bytes));
+			final Entry entry = _entries.get(className);
+			if (entry != null && entry._hash.equals(hash) && !findBugsProject.isDependentFile(path) && isValid(entry._auxStateId, validByAuxStateId, currentStates)) {
+				final String outputRoot = ClassFileUtil.getOutputRoot(path, className);
+				if (outputRoot != null) {
+					outputRoots.add(outputRoot);
+				} else {
+					findBugsProject.addAuxClasspathEntry(path);
+				}
+				findBugsProject.removeFile(i);
+				ret._cachedBugs.addAll(entry._bugs);
+			} else {
+				ret._analyzed.put(className, hash);
+			}
+		}
+		for (final String outputRoot : outputRoots) {
+			findBugsProject.addAuxClasspathEntry(outputRoot);
+		}
+		return ret;
+	}
+
+
+	/**
+	 * Stores the bugs of all analyzed (not cached) classes of {@code lookup}.
+	 *
+	 * @param lookup        ..
+	 * @param bugCollection the result of the analysis, including the cached bugs
+	 */
+	synchronized void update(@NotNull final Lookup lookup, @NotNull final BugCollection bugCollection) {
+		if (lookup._analyzed.isEmpty()) {
+			return;
+		}
+		ensureLoaded(lookup._fingerprint);
+
+		final Map<String, List<BugInstance>> bugsByClass = New.map();
+		for (final BugInstance bug : bugCollection.getCollection()) {
+			final String className = getPrimaryClassName(bug);
+			if (className != null && lookup._analyzed.containsKey(className)) {
+				List<BugInstance> bugs = bugsByClass.get(className);
+				if (bugs == null) {
+					bugs = New.arrayList();
+					bugsByClass.put(className, bugs);
+				}
+				bugs.add(bug);
+			}
+		}
+		for (final Map.Entry<String, String> analyzed : lookup._analyzed.entrySet()) {
+			List<BugInstance> bugs = bugsByClass.get(analyzed.getKey());
+			if (bugs == null) {
+				bugs = new ArrayList<BugInstance>(0);
+			}
+			_entries.put(analyzed.getKey(), new Entry(analyzed.getValue(), lookup._auxStateId, bugs));
+		}
+		_auxStates.put(lookup._auxStateId, lookup._auxState);
+		_changed = true;
+		_saveAlarm.cancelAllRequests();
+		_saveAlarm.addRequest(new Runnable() {
+			@Override
+			public void run() {
+				save();
+			}
+		}, SAVE_DELAY_MS);
+	}
+
+
+	/**
+	 * @param validByAuxStateId already checked aux classpath states, updated
+	 * @param currentStates     see {@link #state(File)} by path, updated
+	 * @return true if all aux classpath entries of the aux classpath state are unchanged
+	 */
+	private boolean isValid(@NotNull final String auxStateId, @NotNull final Map<String, Boolean> validByAuxStateId, @NotNull final Map<String, String> currentStates) {
+		Boolean ret = validByAuxStateId.get(auxStateId);
+		if (ret == null) {
+			ret = false;
+			final String auxState = _auxStates.get(auxStateId);
+			if (auxState != null) {
+				ret = true;
+				for (final String entry : auxState.split(File.pathSeparator)) {
+					final int separator = entry.indexOf('|');
+					if (separator < 0) {
+						continue;
+					}
+					final String path = entry.substring(separator + 1);
+					String state = currentStates.get(path);
+					if (state == null) {
+						state = state(new File(path));
+						currentStates.put(path, state);
+					}
+					if (!state.equals(entry.substring(0, separator))) {
+						ret = false;
+						break;
+					}
+				}
+			}
+			validByAuxStateId.put(auxStateId, ret);
+		}
+		return ret;
+	}
+
+
+	private void ensureLoaded(@NotNull final String fingerprint) {
+		if (_entries == null) {
+			load();
+		}
+		if (!fingerprint.equals(_fingerprint)) {
+			_fingerprint = fingerprint;
+			_entries = New.map();
+			_auxStates = New.map();
+			_changed = true;
+		}
+	}
+
+
+	private void load() {
+		_entries = New.map();
+		_auxStates = New.map();
+		final File indexFile = new File(_dir, INDEX_FILE_NAME);
+		final File bugsFile = new File(_dir, BUGS_FILE_NAME);
+		if (!indexFile.isFile() || !bugsFile.isFile()) {
+			return;
+		}
+		final Properties index = new Properties();
+		InputStream in = null;
+		try {
+			in = new FileInputStream(indexFile);
+			index.load(in);
+			final SortedBugCollection bugCollection = new SortedBugCollection();
+			bugCollection.setDoNotUseCloud(true);
+			bugCollection.readXML(bugsFile);
+
+			final Map<String, List<BugInstance>> bugsByClass = New.map();
+			for (final BugInstance bug : bugCollection.getCollection()) {
+				final String className = getPrimaryClassName(bug);
+				if (className != null) {
+					List<BugInstance> bugs = bugsByClass.get(className);
+					if (bugs == null) {
+						bugs = New.arrayList();
+						bugsByClass.put(className, bugs);
+					}
+					bugs.add(bug);
+				}
+			}
+			for (final String key : index.stringPropertyNames()) {
+				if (key.startsWith(AUX_STATE_KEY_PREFIX)) {
+					_auxStates.put(key.substring(AUX_STATE_KEY_PREFIX.length()), index.getProperty(key));
+				} else if (!FINGERPRINT_KEY.equals(key)) {
+					final String[] values = index.getProperty(key).split(" ");
+					if (values.length != 2) {
+						continue;
+					}
+					List<BugInstance> bugs = bugsByClass.get(key);
+					if (bugs == null) {
+						bugs = new ArrayList<BugInstance>(0);
+					}
+					_entries.put(key, new Entry(values[0], values[1], bugs));
+				}
+			}
+			_fingerprint = index.getProperty(FINGERPRINT_KEY);
+		} catch (final IOException e) {
+			LOGGER.warn("Could not load analysis cache: " + _dir, e);
+			_entries.clear();
+			_auxStates.clear();
+		} catch (final DocumentException e) {
+			LOGGER.warn("Could not load analysis cache: " + _dir, e);
+			_entries.clear();
+			_auxStates.clear();
+		} finally {
+			IoUtil.safeClose(in);
+		}
+	}
+
+
+	/**
+	 * Writes the cache if it was changed since last load or save.
+	 */
+	private synchronized void save() {
+		if (!_changed) {
+			return;
+		}
+		_changed = false;
+		if (!_dir.isDirectory() && !_dir.mkdirs()) {
+			LOGGER.warn("Could not create analysis cache directory: " + _dir.getAbsolutePath());
+			return;
+		}
+		final Properties index = new Properties();
+		index.setProperty(FINGERPRINT_KEY, _fingerprint);
+		final SortedBugCollection bugCollection = new SortedBugCollection(new edu.umd.cs.findbugs.Project());
+		bugCollection.setDoNotUseCloud(true);
+		final Set<String> auxStateIds = New.set();
+		for (final Map.Entry<String, Entry> entry : _entries.entrySet()) {
+			index.setProperty(entry.getKey(), entry.getValue()._hash + ' ' + entry.getValue()._auxStateId);
+			auxStateIds.add(entry.getValue()._auxStateId);
+			for (final BugInstance bug : entry.getValue()._bugs) {
+				bugCollection.add(bug, false);
+			}
+		}
+		_auxStates.keySet().retainAll(auxStateIds);
+		for (final Map.Entry<String, String> auxState : _auxStates.entrySet()) {
+			index.setProperty(AUX_STATE_KEY_PREFIX + auxState.getKey(), auxState.getValue());
+		}
+
+		final File indexFile = new File(_dir, INDEX_FILE_NAME);
+		// invalidate first ; index and bugs must be consistent
+		if (indexFile.exists() && !indexFile.delete()) {
+			LOGGER.warn("Could not delete analysis cache index: " + indexFile.getAbsolutePath());
+			return;
+		}
+		OutputStream out = null;
+		try {
+			bugCollection.writeXML(new File(_dir, BUGS_FILE_NAME));
+			out = new FileOutputStream(indexFile);
+			index.store(out, null);
+		} catch (final IOException e) {
+			LOGGER.warn("Could not save analysis cache: " + _dir, e);
+		} finally {
+			IoUtil.safeClose(out);
+		}
+	}
+
+
+	@NotNull
+	static String fingerprint(@NotNull final FindBugsPreferences preferences, @NotNull final UserPreferences userPrefs) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(FORMAT_VERSION).append('|').append(Version.RELEASE);
+		sb.append("|effort=").append(userPrefs.getEffort());
+		sb.append("|threshold=").append(userPrefs.getUserDetectorThreshold());
+
+		final Set<String> plugins = new TreeSet<String>();
+		for (final Plugin plugin : Plugin.getAllPlugins()) {
+			if (!preferences.isPluginDisabled(plugin.getPluginId())) {
+				plugins.add(plugin.getPluginId() + ':' + plugin.getVersion());
+			}
+		}
+		sb.append("|plugins=").append(plugins);
+
+		final Set<String> detectors = new TreeSet<String>();
+		final Iterator<DetectorFactory> iterator = FindBugsPreferences.getDetectorFactorCollection().factoryIterator();
+		while (iterator.hasNext()) {
+			final DetectorFactory factory = iterator.next();
+			if (userPrefs.isDetectorEnabled(factory)) {
+				detectors.add(factory.getFullName());
+			}
+		}
+		sb.append("|detectors=").append(detectors);
+		return hash(sb.toString());
+	}
+
+
+	/**
+	 * Archives are identified by length and time stamp, directories (f. e. output directories of
+	 * dependency modules, which are not analyzed) by the count and time stamps of their class files.
+	 *
+	 * @param auxClasspathEntries ..
+	 * @return the state of the aux classpath entries, like {@code f1234-5678|/lib/a.jar:d12-34567|/out/b}
+	 */
+	@NotNull
+	private static String auxState(@NotNull final Collection<String> auxClasspathEntries) {
+		final StringBuilder sb = new StringBuilder();
+		for (final String path : new TreeSet<String>(auxClasspathEntries)) {
+			if (sb.length() > 0) {
+				sb.append(File.pathSeparatorChar);
+			}
+			sb.append(state(new File(path))).append('|').append(path);
+		}
+		return sb.toString();
+	}
+
+
+	@NotNull
+	private static String state(@NotNull final File file) {
+		if (file.isFile()) {
+			return "f" + file.length() + '-' + file.lastModified();
+		}
+		if (file.isDirectory()) {
+			final long[] countAndTimeStamps = new long[2];
+			addClassFileStates(file, countAndTimeStamps);
+			return "d" + countAndTimeStamps[0] + '-' + countAndTimeStamps[1];
+		}
+		return "-";
+	}
+
+
+	private static void addClassFileStates(@NotNull final File dir, @NotNull final long[] countAndTimeStamps) {
+		final File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (final File file : files) {
+			if (file.getName().endsWith(ClassFileUtil.CLASS_FILE_SUFFIX)) {
+				countAndTimeStamps[0]++;
+				countAndTimeStamps[1] += file.lastModified();
+			} else if (file.isDirectory()) {
+				addClassFileStates(file, countAndTimeStamps);
+			}
+		}
+	}
+
+
+	@NotNull
+	private static String hash(@NotNull final String value) {
+		try {
+			return toHex(digest().digest(value.getBytes("UTF-8")));
+		} catch (final UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+
+	/**
+	 * Files are identified by path, length and time stamp; directories by path only, their content is not read.
+	 */
+	static void appendFiles(@NotNull final StringBuilder sb, @Nullable final Project project, @NotNull final Collection<String> paths) {
+		final Set<String> sorted = new TreeSet<String>();
+		for (final String path : paths) {
+			sorted.add(project != null ? IdeaUtilImpl.expandPathMacro(project, path) : path);
+		}
+		for (final String path : sorted) {
+			sb.append(path);
+			final File file = new File(path);
+			if (file.isFile()) {
+				sb.append(':').append(file.length()).append(':').append(file.lastModified());
+			}
+			sb.append(';');
+		}
+	}
+
+
+	@Nullable
+	private static String getPrimaryClassName(@NotNull final BugInstance bug) {
+		final ClassAnnotation primaryClass = bug.getPrimaryClass();
+		return primaryClass != null ? primaryClass.getClassName() : null;
+	}
+
+
+	@NotNull
+	private static MessageDigest digest() {
+		try {
+			return MessageDigest.getInstance("MD5");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+
+	@NotNull
+	private static String toHex(@NotNull final byte[] bytes) {
+		final StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (final byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+
+	private static final class Entry {
+		private final String _hash;
+		private final String _auxStateId;
+		private final List<BugInstance> _bugs;
+
+
+		Entry(@NotNull final String hash, @NotNull final String auxStateId, @NotNull final List<BugInstance> bugs) {
+			_hash = hash;
+			_auxStateId = auxStateId;
+			_bugs = bugs;
+		}
+	}
+
+
+	static final class Lookup {
+		private final String _fingerprint;
+		private final String _auxState;
+		private final String _auxStateId;
+		private final List<BugInstance> _cachedBugs;
+		private final Map<String, String> _analyzed;
+
+
+		private Lookup(@NotNull final String fingerprint, @NotNull final String auxState) {
+			_fingerprint = fingerprint;
+			_auxState = auxState;
+			_auxStateId = hash(auxState);
+			_cachedBugs = New.arrayList();
+			_analyzed = New.map();
+		}
+
+
+		/**
+		 * @return bugs of all unchanged class files
+		 */
+		@NotNull
+		List<BugInstance> getCachedBugs() {
+			return _cachedBugs;
+		}
+	}
+}
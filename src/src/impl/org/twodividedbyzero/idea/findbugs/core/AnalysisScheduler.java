@@ -0,0 +1,257 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.core;
+
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.twodividedbyzero.idea.findbugs.common.EventDispatchThreadHelper;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Per project single-flight scheduler for {@link FindBugsStarter}s: at most one analysis
+ * (including its compile phase) runs at a time.
+ * <p>
+ * While a run is active:
+ * <ul>
+ * <li>changed files of automatic runs (after make/automake) are queued and coalesced into one run</li>
+ * <li>a user triggered run preempts an active automatic run; the files of the preempted run are queued again.
+ * A make which is already running is not interrupted, the preempted run ends when it has finished.</li>
+ * <li>a user triggered run supersedes a user triggered run which is still pending</li>
+ * </ul>
+ * Pending user triggered runs are started before pending automatic runs.
+ * A starter is unsubscribed from {@link org.twodividedbyzero.idea.findbugs.messages.AnalysisAbortingListener}
+ * when its run has ended or it was superseded.
+ * <p>
+ * EDT thread confinement.
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+public final class AnalysisScheduler {
+
+	private static final Logger LOGGER = Logger.getInstance(AnalysisScheduler.class.getName());
+	private static final Map<Project, AnalysisScheduler> SCHEDULER_BY_PROJECT = New.weakHashMap();
+
+	private final Project _project;
+	private FindBugsStarter _active;
+	private Set<VirtualFile> _activeChanged;
+	private FindBugsStarter _pending;
+	private Set<VirtualFile> _pendingChanged;
+	private int _queueDepth;
+	private long _queuedSince;
+	private long _lastWaitMillis;
+	private long _maxWaitMillis;
+
+
+	private AnalysisScheduler(@NotNull final Project project) {
+		_project = project;
+		_pendingChanged = new LinkedHashSet<VirtualFile>();
+	}
+
+
+	@NotNull
+	public static AnalysisScheduler getInstance(@NotNull final Project project) {
+		EventDispatchThreadHelper.checkEDT();
+		AnalysisScheduler ret = SCHEDULER_BY_PROJECT.get(project);
+		if (ret == null) {
+			ret = new AnalysisScheduler(project);
+			SCHEDULER_BY_PROJECT.put(project, ret);
+		}
+		return ret;
+	}
+
+
+	/**
+	 * @param project ..
+	 * @return true if the active run would be preempted by a user triggered run
+	 */
+	public static boolean isPreemptible(@NotNull final Project project) {
+		EventDispatchThreadHelper.checkEDT();
+		final AnalysisScheduler scheduler = SCHEDULER_BY_PROJECT.get(project);
+		return scheduler != null && scheduler._active != null && scheduler._activeChanged != null && scheduler._pending == null;
+	}
+
+
+	void submit(@NotNull final FindBugsStarter starter) {
+		EventDispatchThreadHelper.checkEDT();
+		if (_active == null) {
+			run(starter, null);
+			return;
+		}
+		enqueued();
+		if (_pending != null) {
+			_pending.dispose();
+		}
+		_pending = starter;
+		if (_activeChanged != null) {
+			LOGGER.info("Preempt automatic analysis of " + _activeChanged.size() + " file(s)");
+			_pendingChanged.addAll(_activeChanged);
+			_activeChanged = null;
+			_active.cancel();
+		}
+	}
+
+
+	/**
+	 * Automatic analysis of changed files, see {@link FindBugsCompileAfterHook}.
+	 *
+	 * @param changed changed source files
+	 */
+	void submitChanged(@NotNull final Collection<VirtualFile> changed) {
+		EventDispatchThreadHelper.checkEDT();
+		_pendingChanged.addAll(changed);
+		if (_active == null) {
+			runPendingChanged();
+		} else {
+			enqueued();
+		}
+	}
+
+
+	/**
+	 * Must be invoked exactly once for each started run, whether it has finished, was aborted or did not
+	 * start the analysis at all (compile errors). Does nothing if the scheduler was disposed meanwhile.
+	 */
+	static void runEnded(@NotNull final Project project, @NotNull final FindBugsStarter starter) {
+		EventDispatchThreadHelper.checkEDT();
+		final AnalysisScheduler scheduler = SCHEDULER_BY_PROJECT.get(project);
+		if (scheduler != null) {
+			scheduler.runEnded(starter);
+		}
+	}
+
+
+	private void runEnded(@NotNull final FindBugsStarter starter) {
+		if (_active != starter) {
+			return;
+		}
+		starter.dispose();
+		_active = null;
+		_activeChanged = null;
+		if (_pending != null) {
+			final FindBugsStarter pending = _pending;
+			_pending = null;
+			dequeued(!_pendingChanged.isEmpty());
+			run(pending, null);
+		} else if (!_pendingChanged.isEmpty()) {
+			dequeued(false);
+			runPendingChanged();
+		}
+	}
+
+
+	/**
+	 * Invoked by EDT when the project is closed. Cancels the active run and drops all pending runs.
+	 *
+	 * @param project ..
+	 */
+	static void dispose(@NotNull final Project project) {
+		EventDispatchThreadHelper.checkEDT();
+		final AnalysisScheduler scheduler = SCHEDULER_BY_PROJECT.remove(project);
+		if (scheduler == null) {
+			return;
+		}
+		if (scheduler._active != null) {
+			scheduler._active.cancel();
+			scheduler._active.dispose();
+			scheduler._active = null;
+		}
+		if (scheduler._pending != null) {
+			scheduler._pending.dispose();
+			scheduler._pending = null;
+		}
+		scheduler._pendingChanged.clear();
+	}
+
+
+	/**
+	 * @return number of requests coalesced into the pending runs
+	 */
+	public int getQueueDepth() {
+		return _queueDepth;
+	}
+
+
+	public int getPendingFileCount() {
+		return _pendingChanged.size();
+	}
+
+
+	/**
+	 * @return how long the last queued run had to wait for its start
+	 */
+	public long getLastWaitMillis() {
+		return _lastWaitMillis;
+	}
+
+
+	public long getMaxWaitMillis() {
+		return _maxWaitMillis;
+	}
+
+
+	private void runPendingChanged() {
+		final Set<VirtualFile> changed = new LinkedHashSet<VirtualFile>();
+		for (final VirtualFile file : _pendingChanged) {
+			if (file.isValid()) {
+				changed.add(file);
+			}
+		}
+		_pendingChanged = new LinkedHashSet<VirtualFile>();
+		if (!changed.isEmpty() && !_project.isDisposed()) {
+			run(FindBugsCompileAfterHook.createStarter(_project, changed), changed);
+		}
+	}
+
+
+	private void run(@NotNull final FindBugsStarter starter, @Nullable final Set<VirtualFile> changed) {
+		_active = starter;
+		_activeChanged = changed;
+		starter.startNow();
+	}
+
+
+	private void enqueued() {
+		if (_queueDepth == 0) {
+			_queuedSince = System.currentTimeMillis();
+		}
+		_queueDepth++;
+	}
+
+
+	/**
+	 * @param changedStillPending true if the pending changed files keep waiting (since the same time)
+	 */
+	private void dequeued(final boolean changedStillPending) {
+		_lastWaitMillis = System.currentTimeMillis() - _queuedSince;
+		_maxWaitMillis = Math.max(_maxWaitMillis, _lastWaitMillis);
+		LOGGER.info("Start queued analysis after " + _lastWaitMillis + " ms (queue depth " + _queueDepth + ", " + _pendingChanged.size() + " pending file(s))");
+		_queueDepth = changedStillPending ? 1 : 0;
+	}
+}
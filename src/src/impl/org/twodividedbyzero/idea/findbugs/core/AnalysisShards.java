@@ -0,0 +1,166 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.core;
+
+
+import com.intellij.openapi.util.text.StringUtil;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.ProjectStats;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import org.jetbrains.annotations.NotNull;
+import org.twodividedbyzero.idea.findbugs.common.util.ClassFileUtil;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * Splits a {@link FindBugsProject} into shards which can be analyzed by independent
+ * {@link edu.umd.cs.findbugs.FindBugs2} engines, and merges the results.
+ * <p>
+ * Class files are grouped by package directory (so inner classes stay with their outer class)
+ * and the packages are distributed over the shards by file count. Every shard gets the same
+ * aux classpath, extended by the output roots of all analyzed classes.
+ * <p>
+ * Sharding is enabled with {@link org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences#RUN_ANALYSIS_IN_PARALLEL}.
+ * The shard count defaults to the number of available processors and can be limited with
+ * {@code -Didea.findbugs.shards=N}.
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+final class AnalysisShards {
+
+	private static final int DEFAULT_SHARD_COUNT = Runtime.getRuntime().availableProcessors();
+	private static final int SHARD_COUNT = Math.max(1, StringUtil.parseInt(System.getProperty("idea.findbugs.shards", String.valueOf(DEFAULT_SHARD_COUNT)), DEFAULT_SHARD_COUNT));
+
+	/**
+	 * Small projects are not worth the additional engine setup.
+	 */
+	private static final int MIN_FILES_PER_SHARD = 200;
+
+
+	private AnalysisShards() {
+	}
+
+
+	/**
+	 * @param findBugsProject configured project
+	 * @param parallel        true if {@link org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences#RUN_ANALYSIS_IN_PARALLEL} is enabled
+	 * @return {@code findBugsProject} itself if sharding is disabled or not worth it
+	 */
+	@NotNull
+	static List<FindBugsProject> split(@NotNull final FindBugsProject findBugsProject, final boolean parallel) {
+		final int fileCount = findBugsProject.getFileCount();
+		final int shardCount = parallel ? Math.min(SHARD_COUNT, fileCount / MIN_FILES_PER_SHARD) : 1;
+		if (shardCount <= 1) {
+			return Collections.singletonList(findBugsProject);
+		}
+
+		final Map<String, List<String>> filesByDir = New.map();
+		for (final String file : findBugsProject.getFileList()) {
+			final String dir = new File(file).getParent();
+			List<String> files = filesByDir.get(dir);
+			if (files == null) {
+				files = New.arrayList();
+				filesByDir.put(dir, files);
+			}
+			files.add(file);
+		}
+
+		final Set<String> outputRoots = new TreeSet<String>();
+		for (final List<String> files : filesByDir.values()) {
+			final String file = files.get(0);
+			if (file.endsWith(ClassFileUtil.CLASS_FILE_SUFFIX)) {
+				final String className = ClassFileUtil.getClassName(new File(file));
+				if (className != null) {
+					final String outputRoot = ClassFileUtil.getOutputRoot(file, className);
+					if (outputRoot != null) {
+						outputRoots.add(outputRoot);
+					}
+				}
+			}
+		}
+
+		// largest package first, always into the smallest shard
+		final List<List<String>> packages = new ArrayList<List<String>>(filesByDir.values());
+		Collections.sort(packages, new Comparator<List<String>>() {
+			@Override
+			public int compare(final List<String> o1, final List<String> o2) {
+				return o2.size() - o1.size();
+			}
+		});
+		final List<List<String>> shardFiles = new ArrayList<List<String>>(shardCount);
+		for (int i = 0; i < shardCount; i++) {
+			shardFiles.add(new ArrayList<String>());
+		}
+		for (final List<String> files : packages) {
+			List<String> smallest = shardFiles.get(0);
+			for (final List<String> candidate : shardFiles) {
+				if (candidate.size() < smallest.size()) {
+					smallest = candidate;
+				}
+			}
+			smallest.addAll(files);
+		}
+
+		final List<String> auxClasspathEntries = new ArrayList<String>(findBugsProject.getAuxClasspathEntryList());
+		auxClasspathEntries.addAll(outputRoots);
+		final List<FindBugsProject> ret = new ArrayList<FindBugsProject>(shardCount);
+		for (final List<String> files : shardFiles) {
+			ret.add(findBugsProject.createShard(files, auxClasspathEntries));
+		}
+		return ret;
+	}
+
+
+	/**
+	 * Adding the bugs to the merged collection counts them in its {@link ProjectStats}, and
+	 * {@link ProjectStats#addStats(ProjectStats)} adds the bug counts of the shards again; so the bug
+	 * counts are cleared before the stats of the shards (class counts, code size and their bug counts)
+	 * are added.
+	 *
+	 * @param findBugsProject the original (not split) project
+	 * @param bugCollections  results of all shards
+	 * @return merged result
+	 */
+	@NotNull
+	static SortedBugCollection merge(@NotNull final FindBugsProject findBugsProject, @NotNull final List<SortedBugCollection> bugCollections) {
+		final SortedBugCollection ret = new SortedBugCollection(findBugsProject);
+		ret.setDoNotUseCloud(true);
+		for (final SortedBugCollection bugCollection : bugCollections) {
+			for (final BugInstance bug : bugCollection.getCollection()) {
+				ret.add(bug, false);
+			}
+		}
+		final ProjectStats projectStats = ret.getProjectStats();
+		projectStats.clearBugCounts();
+		for (final SortedBugCollection bugCollection : bugCollections) {
+			projectStats.addStats(bugCollection.getProjectStats());
+		}
+		return ret;
+	}
+}
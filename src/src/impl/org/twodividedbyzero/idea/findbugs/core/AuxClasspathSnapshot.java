@@ -0,0 +1,120 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.core;
+
+
+import com.intellij.ProjectTopics;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootAdapter;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Per module snapshot of the resolved aux classpath (see {@link IdeaUtilImpl#getProjectClasspath(Module)}),
+ * as distinct paths ready to be passed to FindBugs. The snapshots of a project are dropped
+ * when its module roots change.
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+public final class AuxClasspathSnapshot {
+
+	private static final Map<Project, Map<Module, Set<String>>> SNAPSHOTS_BY_PROJECT = New.weakHashMap();
+
+
+	private AuxClasspathSnapshot() {
+	}
+
+
+	/**
+	 * Must be called inside a read action.
+	 *
+	 * @param module ..
+	 * @return unmodifiable, in classpath order without duplicates
+	 */
+	@NotNull
+	public static Set<String> get(@Nullable final Module module) {
+		if (module == null) {
+			return Collections.emptySet();
+		}
+		final Map<Module, Set<String>> snapshots = getSnapshots(module.getProject());
+		synchronized (snapshots) {
+			Set<String> ret = snapshots.get(module);
+			if (ret == null) {
+				final Set<String> paths = new LinkedHashSet<String>();
+				for (final VirtualFile file : IdeaUtilImpl.getProjectClasspath(module)) {
+					paths.add(file.getPresentableUrl());
+				}
+				ret = Collections.unmodifiableSet(paths);
+				snapshots.put(module, ret);
+			}
+			return ret;
+		}
+	}
+
+
+	/**
+	 * Must be called inside a read action.
+	 *
+	 * @param modules ..
+	 * @return merged snapshots of {@code modules}, without duplicates
+	 */
+	@NotNull
+	public static Set<String> get(@NotNull final Collection<Module> modules) {
+		final Set<String> ret = new LinkedHashSet<String>();
+		for (final Module module : modules) {
+			ret.addAll(get(module));
+		}
+		return ret;
+	}
+
+
+	@NotNull
+	private static Map<Module, Set<String>> getSnapshots(@NotNull final Project project) {
+		synchronized (SNAPSHOTS_BY_PROJECT) {
+			Map<Module, Set<String>> ret = SNAPSHOTS_BY_PROJECT.get(project);
+			if (ret == null) {
+				final Map<Module, Set<String>> snapshots = New.weakHashMap();
+				project.getMessageBus().connect(project).subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootAdapter() {
+					@Override
+					public void rootsChanged(final ModuleRootEvent event) {
+						synchronized (snapshots) {
+							snapshots.clear();
+						}
+					}
+				});
+				ret = snapshots;
+				SNAPSHOTS_BY_PROJECT.put(project, ret);
+			}
+			return ret;
+		}
+	}
+}
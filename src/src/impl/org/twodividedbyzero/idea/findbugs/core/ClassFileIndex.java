@@ -0,0 +1,351 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.core;
+
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.twodividedbyzero.idea.findbugs.common.util.ClassFileUtil;
+import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.common.util.IoUtil;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+
+/**
+ * Persistent per project index of the class files compiled from each source file.
+ * <p>
+ * The index is updated with the class files generated by a make (see {@link FindBugsCompileAfterHook})
+ * and with the class files found by the PSI based collector for source files which are not indexed yet
+ * (see {@link org.twodividedbyzero.idea.findbugs.collectors.StatelessClassAdder#addClassFiles(VirtualFile)}).
+ * An entry is only used while the source file is unchanged and all its class files exist, so a source
+ * file which was edited or compiled by automake is looked up with PSI again.
+ * <p>
+ * Can be disabled with {@code -Didea.findbugs.classfileindex.enabled=false}.
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+public final class ClassFileIndex {
+
+	private static final Logger LOGGER = Logger.getInstance(ClassFileIndex.class.getName());
+
+	private static final boolean ENABLED = Boolean.valueOf(System.getProperty("idea.findbugs.classfileindex.enabled", "true"));
+	private static final String FORMAT_VERSION = "1";
+	private static final String INDEX_FILE_NAME = "classfiles.properties";
+	private static final String VERSION_KEY = "#version";
+	private static final Map<Project, ClassFileIndex> INDEX_BY_PROJECT = New.weakHashMap();
+
+	private final Project _project;
+	private final File _file;
+	private Map<String, Entry> _entries;
+	private boolean _changed;
+
+
+	private ClassFileIndex(@NotNull final Project project, @NotNull final File file) {
+		_project = project;
+		_file = file;
+	}
+
+
+	/**
+	 * @param project ..
+	 * @return null if the index is disabled
+	 */
+	@Nullable
+	public static ClassFileIndex getInstance(@NotNull final Project project) {
+		if (!ENABLED) {
+			return null;
+		}
+		synchronized (INDEX_BY_PROJECT) {
+			ClassFileIndex ret = INDEX_BY_PROJECT.get(project);
+			if (ret == null) {
+				// PathManager.getSystemPath() may return relative path
+				final File systemPath = new File(PathManager.getSystemPath()).getAbsoluteFile();
+				final File dir = new File(systemPath, "findbugs-idea" + File.separatorChar + "index" + File.separatorChar + project.getLocationHash());
+				ret = new ClassFileIndex(project, new File(dir, INDEX_FILE_NAME));
+				INDEX_BY_PROJECT.put(project, ret);
+			}
+			return ret;
+		}
+	}
+
+
+	/**
+	 * Invoked by {@link FindBugsCompileAfterHook} when the project is closed. Saves the index
+	 * of {@code project} and releases it.
+	 *
+	 * @param project ..
+	 */
+	static void dispose(@NotNull final Project project) {
+		final ClassFileIndex index;
+		synchronized (INDEX_BY_PROJECT) {
+			index = INDEX_BY_PROJECT.remove(project);
+		}
+		if (index != null) {
+			index.save();
+		}
+	}
+
+
+	/**
+	 * @param sourceFile ..
+	 * @return the class files of {@code sourceFile} or null if not indexed or outdated
+	 */
+	@Nullable
+	public synchronized List<String> get(@NotNull final VirtualFile sourceFile) {
+		ensureLoaded();
+		final Entry entry = _entries.get(sourceFile.getPath());
+		if (entry == null) {
+			return null;
+		}
+		if (entry._timeStamp != sourceFile.getTimeStamp()) {
+			return null;
+		}
+		for (final String classFile : entry._classFiles) {
+			if (!new File(classFile).isFile()) {
+				return null;
+			}
+		}
+		return entry._classFiles;
+	}
+
+
+	/**
+	 * @param sourceFile ..
+	 * @param classFiles all existing class files of {@code sourceFile}
+	 */
+	public synchronized void put(@NotNull final VirtualFile sourceFile, @NotNull final List<String> classFiles) {
+		put(sourceFile, sourceFile.getTimeStamp(), classFiles);
+	}
+
+
+	/**
+	 * @param timeStamp time stamp of {@code sourceFile} when its class files were generated
+	 */
+	private synchronized void put(@NotNull final VirtualFile sourceFile, final long timeStamp, @NotNull final List<String> classFiles) {
+		ensureLoaded();
+		if (classFiles.isEmpty()) {
+			remove(sourceFile);
+		} else {
+			_entries.put(sourceFile.getPath(), new Entry(timeStamp, new ArrayList<String>(classFiles)));
+			_changed = true;
+		}
+	}
+
+
+	synchronized void remove(@NotNull final Collection<VirtualFile> sourceFiles) {
+		ensureLoaded();
+		for (final VirtualFile sourceFile : sourceFiles) {
+			remove(sourceFile);
+		}
+	}
+
+
+	private void remove(@NotNull final VirtualFile sourceFile) {
+		if (_entries.remove(sourceFile.getPath()) != null) {
+			_changed = true;
+		}
+	}
+
+
+	/**
+	 * Invoked by {@link FindBugsCompileAfterHook} (not EDT) after a successful make.
+	 * A generated class file is assigned to the compiled source file whose package directory
+	 * in the output root and whose file name match the class file directory and its {@code SourceFile}
+	 * attribute. The entries of compiled source files without any assigned class file are kept
+	 * (f. e. the class files were generated into another output root), they are only used
+	 * as long as the source file and its class files are unchanged anyway.
+	 * <p>
+	 * The time stamps are taken when the make has finished, so a source file which is edited
+	 * while this runs is not indexed with the class files of its previous content.
+	 *
+	 * @param compiled  the compiled source files and their time stamps when the make has finished
+	 * @param generated paths of all class files generated by the make
+	 */
+	void compiled(@NotNull final Map<VirtualFile, Long> compiled, @NotNull final Collection<String> generated) {
+		final Map<String, List<String>> classFilesBySource = New.map();
+		for (final String path : generated) {
+			final File classFile = new File(path);
+			final String sourceFileName = ClassFileUtil.getSourceFileName(classFile);
+			final File dir = classFile.getParentFile();
+			if (sourceFileName == null || dir == null) {
+				continue;
+			}
+			final String key = FileUtil.toSystemIndependentName(dir.getPath()) + '/' + sourceFileName;
+			List<String> classFiles = classFilesBySource.get(key);
+			if (classFiles == null) {
+				classFiles = New.arrayList();
+				classFilesBySource.put(key, classFiles);
+			}
+			classFiles.add(classFile.getPath());
+		}
+
+		final Map<VirtualFile, String> keys = ApplicationManager.getApplication().runReadAction(new Computable<Map<VirtualFile, String>>() {
+			@Override
+			public Map<VirtualFile, String> compute() {
+				return getKeys(compiled.keySet());
+			}
+		});
+		int indexed = 0;
+		synchronized (this) {
+			ensureLoaded();
+			for (final Map.Entry<VirtualFile, Long> entry : compiled.entrySet()) {
+				final VirtualFile sourceFile = entry.getKey();
+				final String key = keys.get(sourceFile);
+				final List<String> classFiles = key != null ? classFilesBySource.get(key) : null;
+				if (classFiles != null) {
+					Collections.sort(classFiles);
+					put(sourceFile, entry.getValue(), classFiles);
+					indexed++;
+				}
+			}
+			save();
+		}
+		LOGGER.debug("Indexed class files of " + indexed + " of " + compiled.size() + " compiled source file(s)");
+	}
+
+
+	/**
+	 * Writes the index if it was changed since last load or save.
+	 */
+	synchronized void save() {
+		if (!_changed) {
+			return;
+		}
+		_changed = false;
+		final File dir = _file.getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			LOGGER.warn("Could not create class file index directory: " + dir.getAbsolutePath());
+			return;
+		}
+		final Properties properties = new Properties();
+		properties.setProperty(VERSION_KEY, FORMAT_VERSION);
+		for (final Map.Entry<String, Entry> entry : _entries.entrySet()) {
+			final StringBuilder sb = new StringBuilder();
+			sb.append(entry.getValue()._timeStamp);
+			for (final String classFile : entry.getValue()._classFiles) {
+				sb.append(File.pathSeparatorChar).append(classFile);
+			}
+			properties.setProperty(entry.getKey(), sb.toString());
+		}
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(_file);
+			properties.store(out, null);
+		} catch (final IOException e) {
+			LOGGER.warn("Could not save class file index: " + _file, e);
+		} finally {
+			IoUtil.safeClose(out);
+		}
+	}
+
+
+	/**
+	 * Must be invoked in a read action.
+	 *
+	 * @return the expected class file directory and the file name of each source file, like {@code /out/a/b/C.java}
+	 */
+	@NotNull
+	private Map<VirtualFile, String> getKeys(@NotNull final Collection<VirtualFile> sourceFiles) {
+		final ProjectFileIndex fileIndex = ProjectRootManager.getInstance(_project).getFileIndex();
+		final Map<VirtualFile, String> ret = New.map();
+		for (final VirtualFile sourceFile : sourceFiles) {
+			final VirtualFile parent = sourceFile.getParent();
+			final VirtualFile outputRoot = sourceFile.isValid() ? IdeaUtilImpl.getCompilerOutputPath(sourceFile, _project) : null;
+			final String packageName = parent != null ? fileIndex.getPackageNameByDirectory(parent) : null;
+			if (outputRoot != null && packageName != null) {
+				final String packagePath = packageName.isEmpty() ? "" : packageName.replace('.', '/') + '/';
+				ret.put(sourceFile, FileUtil.toSystemIndependentName(outputRoot.getPresentableUrl()) + '/' + packagePath + sourceFile.getName());
+			}
+		}
+		return ret;
+	}
+
+
+	private void ensureLoaded() {
+		if (_entries != null) {
+			return;
+		}
+		_entries = New.map();
+		if (!_file.isFile()) {
+			return;
+		}
+		final Properties properties = new Properties();
+		InputStream in = null;
+		try {
+			in = new FileInputStream(_file);
+			properties.load(in);
+		} catch (final IOException e) {
+			LOGGER.warn("Could not load class file index: " + _file, e);
+			return;
+		} finally {
+			IoUtil.safeClose(in);
+		}
+		if (!FORMAT_VERSION.equals(properties.getProperty(VERSION_KEY))) {
+			return;
+		}
+		for (final String sourcePath : properties.stringPropertyNames()) {
+			if (VERSION_KEY.equals(sourcePath)) {
+				continue;
+			}
+			final String[] values = properties.getProperty(sourcePath).split(File.pathSeparator);
+			try {
+				final long timeStamp = Long.parseLong(values[0]);
+				_entries.put(sourcePath, new Entry(timeStamp, Arrays.asList(values).subList(1, values.length)));
+			} catch (final NumberFormatException e) {
+				LOGGER.debug("Invalid class file index entry: " + sourcePath, e);
+			}
+		}
+	}
+
+
+	private static final class Entry {
+		private final long _timeStamp;
+		private final List<String> _classFiles;
+
+
+		Entry(final long timeStamp, @NotNull final List<String> classFiles) {
+			_timeStamp = timeStamp;
+			_classFiles = Collections.unmodifiableList(classFiles);
+		}
+	}
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.core;
+
+
+import com.intellij.ProjectTopics;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.CompilerModuleExtension;
+import com.intellij.openapi.roots.ModuleRootAdapter;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileAdapter;
+import com.intellij.openapi.vfs.VirtualFileCopyEvent;
+import com.intellij.openapi.vfs.VirtualFileEvent;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.VirtualFileMoveEvent;
+import com.intellij.openapi.vfs.VirtualFileVisitor;
+import com.intellij.util.Alarm;
+import com.intellij.util.io.storage.HeavyProcessLatch;
+import com.intellij.util.messages.MessageBusConnection;
+import org.jetbrains.annotations.NotNull;
+import org.twodividedbyzero.idea.findbugs.common.EventDispatchThreadHelper;
+import org.twodividedbyzero.idea.findbugs.common.util.ClassFileUtil;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
+import org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Watches the compiler output roots of a project for changed class files and submits them
+ * to the {@link AnalysisScheduler}, so builds which are delegated to Gradle or Maven (and do
+ * not notify {@link FindBugsCompileAfterHook}) trigger an analysis too.
+ * <p>
+ * Events are collected until no class file has changed for {@code -Didea.findbugs.classwatcher.delaymillis}
+ * (one build), then the changed class files are analyzed directly (no source and PSI lookup).
+ * The output roots are determined when the watcher is enabled (project opened or settings applied)
+ * and again when the project roots have changed. On enable, the output roots are refreshed and their
+ * children loaded into the VFS in background before the listener is added; no events are fired for
+ * directories whose children were never loaded.
+ * Class files written by IDEA's own make are seen too, so this mode is exclusive with the analysis
+ * after make or automake (see {@link #isEnabled(FindBugsPreferences)}).
+ * <p>
+ * EDT thread confinement (except the alarm and {@link #loadOutputRoots()}).
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+final class ClassFileWatcher extends VirtualFileAdapter {
+
+	private static final Logger LOGGER = Logger.getInstance(ClassFileWatcher.class.getName());
+
+	private static final int DEFAULT_DELAY_MS = 2000;
+	private static final int DELAY_MS = StringUtil.parseInt(System.getProperty("idea.findbugs.classwatcher.delaymillis", String.valueOf(DEFAULT_DELAY_MS)), DEFAULT_DELAY_MS);
+	private static final Map<Project, ClassFileWatcher> WATCHER_BY_PROJECT = New.weakHashMap();
+
+	private final Project _project;
+	private final List<String> _outputRoots;
+	private final Set<LocalFileSystem.WatchRequest> _watchRequests;
+	private final Alarm _alarm;
+	private final MessageBusConnection _connection;
+	private Set<VirtualFile> _changed;
+
+
+	private ClassFileWatcher(@NotNull final Project project, @NotNull final List<String> outputRoots) {
+		_project = project;
+		_outputRoots = outputRoots;
+		_watchRequests = LocalFileSystem.getInstance().addRootsToWatch(outputRoots, true);
+		_alarm = new Alarm(Alarm.ThreadToUse.SHARED_THREAD);
+		_connection = project.getMessageBus().connect();
+		_connection.subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootAdapter() {
+			@Override
+			public void rootsChanged(final ModuleRootEvent event) {
+				if (WATCHER_BY_PROJECT.get(_project) == ClassFileWatcher.this && !getOutputRoots(_project).equals(_outputRoots)) {
+					LOGGER.debug("Output roots changed");
+					setEnabled(_project, true);
+				}
+			}
+		});
+	}
+
+
+	/**
+	 * @param preferences project preferences
+	 * @return true if the watcher is enabled and neither the analysis after make nor after automake is enabled
+	 */
+	static boolean isEnabled(@NotNull final FindBugsPreferences preferences) {
+		return preferences.getBooleanProperty(FindBugsPreferences.ANALYZE_AFTER_CLASS_FILE_CHANGE, false)
+				&& !preferences.getBooleanProperty(FindBugsPreferences.ANALYZE_AFTER_COMPILE, false)
+				&& !preferences.getBooleanProperty(FindBugsPreferences.ANALYZE_AFTER_AUTOMAKE, false);
+	}
+
+
+	/**
+	 * Invoked by EDT. If already enabled, the output roots are determined again.
+	 *
+	 * @param project ..
+	 * @param enabled ..
+	 */
+	static void setEnabled(@NotNull final Project project, final boolean enabled) {
+		EventDispatchThreadHelper.checkEDT();
+		final ClassFileWatcher previous = WATCHER_BY_PROJECT.remove(project);
+		if (previous != null) {
+			previous.dispose();
+		}
+		if (enabled) {
+			final List<String> outputRoots = getOutputRoots(project);
+			if (!outputRoots.isEmpty()) {
+				final ClassFileWatcher watcher = new ClassFileWatcher(project, outputRoots);
+				WATCHER_BY_PROJECT.put(project, watcher);
+				watcher.loadOutputRoots();
+			}
+		}
+	}
+
+
+	/**
+	 * Refreshes the output roots and loads all their children (pooled thread), then adds the listener (EDT).
+	 */
+	private void loadOutputRoots() {
+		ApplicationManager.getApplication().executeOnPooledThread(new Runnable() {
+			@Override
+			public void run() {
+				for (final String outputRoot : _outputRoots) {
+					final VirtualFile root = LocalFileSystem.getInstance().refreshAndFindFileByPath(outputRoot);
+					if (root != null) {
+						root.refresh(false, true);
+						VfsUtilCore.visitChildrenRecursively(root, new VirtualFileVisitor() {
+							@Override
+							public boolean visitFile(@NotNull final VirtualFile file) {
+								return true; // loads the children of each directory
+							}
+						});
+					}
+				}
+				EventDispatchThreadHelper.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						if (!_project.isDisposed() && WATCHER_BY_PROJECT.get(_project) == ClassFileWatcher.this) {
+							VirtualFileManager.getInstance().addVirtualFileListener(ClassFileWatcher.this);
+							LOGGER.info("Watching " + _outputRoots.size() + " output root(s) for changed class files");
+						}
+					}
+				});
+			}
+		});
+	}
+
+
+	@Override
+	public void contentsChanged(@NotNull final VirtualFileEvent event) {
+		collect(event.getFile());
+	}
+
+
+	@Override
+	public void fileCreated(@NotNull final VirtualFileEvent event) {
+		collect(event.getFile());
+	}
+
+
+	@Override
+	public void fileCopied(@NotNull final VirtualFileCopyEvent event) {
+		collect(event.getFile());
+	}
+
+
+	@Override
+	public void fileMoved(@NotNull final VirtualFileMoveEvent event) {
+		collect(event.getFile());
+	}
+
+
+	private void collect(@NotNull final VirtualFile file) {
+		if (!isInOutputRoot(file)) {
+			return;
+		}
+		final Set<VirtualFile> classFiles = New.set();
+		if (file.isDirectory()) {
+			// f. e. clean build: the package directories are created with all their class files
+			VfsUtilCore.visitChildrenRecursively(file, new VirtualFileVisitor() {
+				@Override
+				public boolean visitFile(@NotNull final VirtualFile child) {
+					if (isClassFile(child)) {
+						classFiles.add(child);
+					}
+					return true;
+				}
+			});
+		} else if (isClassFile(file)) {
+			classFiles.add(file);
+		}
+		if (!classFiles.isEmpty()) {
+			schedule(classFiles);
+		}
+	}
+
+
+	private void schedule(@NotNull final Set<VirtualFile> classFiles) {
+		_alarm.cancelAllRequests();
+		synchronized (this) {
+			if (_changed == null) {
+				_changed = new LinkedHashSet<VirtualFile>();
+			}
+			_changed.addAll(classFiles);
+		}
+		addRequest();
+	}
+
+
+	private void addRequest() {
+		_alarm.addRequest(new Runnable() {
+			@Override
+			public void run() {
+				if (HeavyProcessLatch.INSTANCE.isRunning()) {
+					addRequest();
+				} else {
+					final Set<VirtualFile> changed;
+					synchronized (ClassFileWatcher.this) {
+						changed = _changed;
+						_changed = null;
+					}
+					if (changed != null) {
+						submitChanged(changed);
+					}
+				}
+			}
+		}, DELAY_MS);
+	}
+
+
+	private void submitChanged(@NotNull final Set<VirtualFile> changed) {
+		EventDispatchThreadHelper.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				if (!_project.isDisposed()) {
+					LOGGER.debug("Submit " + changed.size() + " changed class file(s)");
+					AnalysisScheduler.getInstance(_project).submitChanged(changed);
+				}
+			}
+		});
+	}
+
+
+	private boolean isInOutputRoot(@NotNull final VirtualFile file) {
+		final String path = file.getPath();
+		for (final String outputRoot : _outputRoots) {
+			if (FileUtil.isAncestor(outputRoot, path, false)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	private void dispose() {
+		_connection.disconnect();
+		VirtualFileManager.getInstance().removeVirtualFileListener(this);
+		LocalFileSystem.getInstance().removeWatchedRoots(_watchRequests);
+		_alarm.cancelAllRequests();
+	}
+
+
+	private static boolean isClassFile(@NotNull final VirtualFile file) {
+		return !file.isDirectory() && file.getName().endsWith(ClassFileUtil.CLASS_FILE_SUFFIX);
+	}
+
+
+	/**
+	 * @return system independent paths of the production and test output roots of all modules
+	 */
+	@NotNull
+	private static List<String> getOutputRoots(@NotNull final Project project) {
+		final List<String> ret = New.arrayList();
+		for (final Module module : ModuleManager.getInstance(project).getModules()) {
+			final CompilerModuleExtension extension = CompilerModuleExtension.getInstance(module);
+			if (extension != null) {
+				for (final String url : new String[] {extension.getCompilerOutputUrl(), extension.getCompilerOutputUrlForTests()}) {
+					if (url != null && !ret.contains(VfsUtilCore.urlToPath(url))) {
+						ret.add(VfsUtilCore.urlToPath(url));
+					}
+				}
+			}
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.core;
+
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.twodividedbyzero.idea.findbugs.common.util.ClassFileUtil;
+import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
+import org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * In memory per project graph of the classes in the compiler output roots and the classes
+ * they reference (see {@link ClassFileUtil#getReferencedClassNames(byte[])}).
+ * <p>
+ * Used by the analysis after automake to also analyze the direct dependents of the changed
+ * classes, so bugs of callers of a changed API (nullness, overridden methods, ..) are updated
+ * without a full analysis. The output roots are read completely in background (pooled thread) after
+ * the first make or on first use; until the graph is ready, no dependents are analyzed. Afterwards
+ * only the class files of automake and make runs are read again.
+ * <p>
+ * The number of dependents per run is configured with {@link FindBugsPreferences#AUTOMAKE_MAX_DEPENDENTS}
+ * ({@code 0} disables the graph).
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+final class DependencyGraph {
+
+	private static final Logger LOGGER = Logger.getInstance(DependencyGraph.class.getName());
+
+	private static final Map<Project, DependencyGraph> GRAPH_BY_PROJECT = New.weakHashMap();
+
+	private final Project _project;
+	/**
+	 * Output roots which were read completely.
+	 */
+	private final Set<String> _outputRoots;
+	/**
+	 * Output roots which are read in background.
+	 */
+	private final Set<String> _readingOutputRoots;
+	private final Map<String, String> _classNameByFile;
+	private final Map<String, String> _fileByClassName;
+	private final Map<String, Set<String>> _dependencies;
+	private final Map<String, Set<String>> _dependents;
+	private volatile boolean _disposed;
+
+
+	private DependencyGraph(@NotNull final Project project) {
+		_project = project;
+		_outputRoots = New.set();
+		_readingOutputRoots = New.set();
+		_classNameByFile = New.map();
+		_fileByClassName = New.map();
+		_dependencies = New.map();
+		_dependents = New.map();
+	}
+
+
+	@NotNull
+	static DependencyGraph getInstance(@NotNull final Project project) {
+		synchronized (GRAPH_BY_PROJECT) {
+			DependencyGraph ret = GRAPH_BY_PROJECT.get(project);
+			if (ret == null) {
+				ret = new DependencyGraph(project);
+				GRAPH_BY_PROJECT.put(project, ret);
+			}
+			return ret;
+		}
+	}
+
+
+	/**
+	 * Invoked by {@link FindBugsCompileAfterHook} when the project is closed. Stops reading
+	 * output roots and releases the graph of {@code project}.
+	 *
+	 * @param project ..
+	 */
+	static void dispose(@NotNull final Project project) {
+		final DependencyGraph graph;
+		synchronized (GRAPH_BY_PROJECT) {
+			graph = GRAPH_BY_PROJECT.remove(project);
+		}
+		if (graph != null) {
+			graph._disposed = true;
+		}
+	}
+
+
+	/**
+	 * Starts reading the compiler output roots which were not read yet in background.
+	 *
+	 * @return true if all output roots were read completely (the graph is ready)
+	 */
+	boolean build() {
+		final List<String> outputRoots = ApplicationManager.getApplication().runReadAction(new Computable<List<String>>() {
+			@Override
+			public List<String> compute() {
+				return getOutputRoots(_project);
+			}
+		});
+		final List<String> unread = New.arrayList();
+		synchronized (this) {
+			for (final String outputRoot : outputRoots) {
+				if (!_outputRoots.contains(outputRoot) && !_readingOutputRoots.contains(outputRoot)) {
+					unread.add(outputRoot);
+				}
+			}
+			_readingOutputRoots.addAll(unread);
+		}
+		if (!unread.isEmpty()) {
+			ApplicationManager.getApplication().executeOnPooledThread(new Runnable() {
+				@Override
+				public void run() {
+					read(unread);
+				}
+			});
+			return false;
+		}
+		synchronized (this) {
+			return _outputRoots.containsAll(outputRoots);
+		}
+	}
+
+
+	/**
+	 * The class files of {@code changedClassFiles} are read again. If the graph is not ready yet
+	 * (see {@link #build()}), no dependents are returned.
+	 *
+	 * @param changedClassFiles class files of the changed sources
+	 * @param max               max number of returned class files
+	 * @return class files of the direct dependents of {@code changedClassFiles} which are not changed themselves,
+	 * sorted by class name
+	 */
+	@NotNull
+	List<String> getDependentClassFiles(@NotNull final Collection<String> changedClassFiles, final int max) {
+		if (!build()) {
+			LOGGER.info("Dependencies of the output roots are not read yet, dependents of changed classes are not analyzed");
+			return Collections.emptyList();
+		}
+		synchronized (this) {
+			return getDependentClassFilesImpl(changedClassFiles, max);
+		}
+	}
+
+
+	@NotNull
+	private List<String> getDependentClassFilesImpl(@NotNull final Collection<String> changedClassFiles, final int max) {
+		final Set<String> changed = New.set();
+		for (final String classFile : changedClassFiles) {
+			final String className = update(classFile);
+			if (className != null) {
+				changed.add(className);
+			}
+		}
+		final Set<String> dependents = new TreeSet<String>();
+		for (final String className : changed) {
+			final Set<String> classNames = _dependents.get(className);
+			if (classNames != null) {
+				dependents.addAll(classNames);
+			}
+		}
+		dependents.removeAll(changed);
+
+		final List<String> ret = New.arrayList();
+		for (final String className : dependents) {
+			if (ret.size() >= max) {
+				LOGGER.info("Too many dependents of changed classes (" + dependents.size() + "), only " + max + " are analyzed");
+				break;
+			}
+			final String classFile = _fileByClassName.get(className);
+			if (classFile != null && new File(classFile).isFile()) {
+				ret.add(classFile);
+			}
+		}
+		return ret;
+	}
+
+
+	/**
+	 * Invoked by {@link FindBugsCompileAfterHook} (not EDT) after a make; does nothing for output roots
+	 * which were not read (or started to read) yet.
+	 *
+	 * @param classFiles generated class files
+	 */
+	synchronized void classFilesGenerated(@NotNull final Collection<String> classFiles) {
+		for (final String classFile : classFiles) {
+			if (isInOutputRoot(_outputRoots, classFile) || isInOutputRoot(_readingOutputRoots, classFile)) {
+				update(classFile);
+			}
+		}
+	}
+
+
+	/**
+	 * Invoked by a pooled thread, see {@link #build()}.
+	 */
+	private void read(@NotNull final List<String> outputRoots) {
+		for (final String outputRoot : outputRoots) {
+			final long start = System.currentTimeMillis();
+			final int count = addDirectory(new File(outputRoot));
+			synchronized (this) {
+				_readingOutputRoots.remove(outputRoot);
+				if (_disposed) {
+					return;
+				}
+				_outputRoots.add(outputRoot);
+			}
+			LOGGER.info("Read dependencies of " + count + " class file(s) of " + outputRoot + " in " + (System.currentTimeMillis() - start) + " ms");
+		}
+	}
+
+
+	/**
+	 * The graph is locked per class file only, so automake runs are not blocked while reading.
+	 */
+	private int addDirectory(@NotNull final File dir) {
+		if (_disposed) {
+			return 0;
+		}
+		final String[] names = dir.list();
+		if (names == null) {
+			return 0;
+		}
+		int ret = 0;
+		for (final String name : names) {
+			final File file = new File(dir, name);
+			if (name.endsWith(ClassFileUtil.CLASS_FILE_SUFFIX)) {
+				synchronized (this) {
+					if (update(file.getPath()) != null) {
+						ret++;
+					}
+				}
+			} else if (file.isDirectory()) {
+				ret += addDirectory(file);
+			}
+		}
+		return ret;
+	}
+
+
+	private static boolean isInOutputRoot(@NotNull final Collection<String> outputRoots, @NotNull final String classFile) {
+		for (final String outputRoot : outputRoots) {
+			if (FileUtil.isAncestor(outputRoot, classFile, true)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Must be invoked in a read action.
+	 */
+	@NotNull
+	private static List<String> getOutputRoots(@NotNull final Project project) {
+		final List<String> ret = New.arrayList();
+		for (final String outputRoot : IdeaUtilImpl.getCompilerOutputUrls(project)) {
+			if (!outputRoot.isEmpty() && !ret.contains(outputRoot)) {
+				ret.add(outputRoot);
+			}
+		}
+		return ret;
+	}
+
+
+	/**
+	 * @return the class name or null if {@code classFile} does not exist (anymore) or is not readable
+	 */
+	@Nullable
+	private String update(@NotNull final String classFile) {
+		final String previous = _classNameByFile.remove(classFile);
+		if (previous != null) {
+			remove(previous);
+		}
+		final byte[] bytes;
+		try {
+			bytes = FileUtil.loadFileBytes(new File(classFile));
+		} catch (final IOException e) {
+			LOGGER.debug("Could not read class file: " + classFile, e);
+			return null;
+		}
+		final String className = ClassFileUtil.getClassName(bytes);
+		final Set<String> dependencies = ClassFileUtil.getReferencedClassNames(bytes);
+		if (className == null || dependencies == null) {
+			return null;
+		}
+		remove(className);
+		_classNameByFile.put(classFile, className);
+		_fileByClassName.put(className, classFile);
+		_dependencies.put(className, dependencies);
+		for (final String dependency : dependencies) {
+			Set<String> dependents = _dependents.get(dependency);
+			if (dependents == null) {
+				dependents = New.set();
+				_dependents.put(dependency, dependents);
+			}
+			dependents.add(className);
+		}
+		return className;
+	}
+
+
+	private void remove(@NotNull final String className) {
+		_fileByClassName.remove(className);
+		final Set<String> dependencies = _dependencies.remove(className);
+		if (dependencies == null) {
+			return;
+		}
+		for (final String dependency : dependencies) {
+			final Set<String> dependents = _dependents.get(dependency);
+			if (dependents != null) {
+				dependents.remove(className);
+				if (dependents.isEmpty()) {
+					_dependents.remove(dependency);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.core;
+
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.BugPattern;
+import edu.umd.cs.findbugs.DetectorFactory;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.config.UserPreferences;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.twodividedbyzero.idea.findbugs.common.EventDispatchThreadHelper;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
+import org.twodividedbyzero.idea.findbugs.gui.toolwindow.view.BugTreePanel;
+import org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Applies changed detector and plugin settings to the result of the last analysis without
+ * running all detectors again.
+ * <p>
+ * The bugs of disabled detectors are removed from the result immediately. If detectors were enabled,
+ * only these detectors are run over the classes of the last analysis and their bugs are merged
+ * with the remaining bugs of the last analysis.
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+public final class DetectorDelta {
+
+	private static final Logger LOGGER = Logger.getInstance(DetectorDelta.class.getName());
+	private static final Map<Project, DetectorDelta> DELTA_BY_PROJECT = New.weakHashMap();
+
+	/**
+	 * The unfiltered result as published to the tool window.
+	 */
+	private final WeakReference<SortedBugCollection> _bugCollection;
+	private final FindBugsProject _findBugsProject;
+	/**
+	 * Full names of the reporting detectors which produced {@link #_bugCollection}.
+	 */
+	private final Set<String> _detectors;
+	/**
+	 * The project or module preferences {@link #_detectors} were taken from.
+	 */
+	private final WeakReference<FindBugsPreferences> _preferences;
+
+
+	private DetectorDelta(@NotNull final SortedBugCollection bugCollection, @NotNull final FindBugsProject findBugsProject, @NotNull final Set<String> detectors, @NotNull final FindBugsPreferences preferences) {
+		_bugCollection = new WeakReference<SortedBugCollection>(bugCollection);
+		_findBugsProject = findBugsProject;
+		_detectors = detectors;
+		_preferences = new WeakReference<FindBugsPreferences>(preferences);
+	}
+
+
+	/**
+	 * Invoked by {@link FindBugsStarter} for each successful analysis.
+	 *
+	 * @param project         ..
+	 * @param bugCollection   unfiltered result
+	 * @param findBugsProject analyzed classes
+	 * @param detectors       see {@link #getEnabledReportingDetectors(UserPreferences)}
+	 * @param preferences     project or module preferences of the analysis
+	 */
+	static void analysisFinished(
+			@NotNull final Project project,
+			@NotNull final SortedBugCollection bugCollection,
+			@NotNull final FindBugsProject findBugsProject,
+			@NotNull final Set<String> detectors,
+			@NotNull final FindBugsPreferences preferences
+	) {
+		synchronized (DELTA_BY_PROJECT) {
+			DELTA_BY_PROJECT.put(project, new DetectorDelta(bugCollection, findBugsProject, detectors, preferences));
+		}
+	}
+
+
+	/**
+	 * Invoked by EDT after the project or module settings were applied (see {@link FindBugsPluginImpl#apply()}
+	 * and {@link ModuleComponentImpl#apply()}).
+	 * Does nothing if the result shown by {@code bugTreePanel} is not the result of the last
+	 * analysis (cleared, imported or an analysis is running) or if the last analysis did not
+	 * use {@code preferences} (e.g. module settings were applied after a project analysis).
+	 *
+	 * @param project      ..
+	 * @param preferences  ..
+	 * @param bugTreePanel ..
+	 */
+	public static void settingsApplied(@NotNull final Project project, @NotNull final FindBugsPreferences preferences, @NotNull final BugTreePanel bugTreePanel) {
+		EventDispatchThreadHelper.checkEDT();
+		final DetectorDelta previous;
+		synchronized (DELTA_BY_PROJECT) {
+			previous = DELTA_BY_PROJECT.get(project);
+		}
+		final SortedBugCollection bugCollection = previous != null ? previous._bugCollection.get() : null;
+		if (bugCollection == null || bugCollection != bugTreePanel.getUnfilteredBugCollection() || previous._preferences.get() != preferences) {
+			return;
+		}
+
+		final Map<String, DetectorFactory> enabled = getEnabledReportingDetectors(preferences.getUserPreferences());
+		final Set<DetectorFactory> added = New.set();
+		for (final Map.Entry<String, DetectorFactory> entry : enabled.entrySet()) {
+			if (!previous._detectors.contains(entry.getKey())) {
+				added.add(entry.getValue());
+			}
+		}
+		boolean removed = false;
+		for (final String detector : previous._detectors) {
+			if (!enabled.containsKey(detector)) {
+				removed = true;
+				break;
+			}
+		}
+		if (added.isEmpty() && !removed) {
+			return;
+		}
+
+		final SortedBugCollection remaining = removed ? removeBugsOfDisabledDetectors(bugCollection, enabled.values()) : bugCollection;
+		if (added.isEmpty()) {
+			LOGGER.info("Removed " + (bugCollection.getCollection().size() - remaining.getCollection().size()) + " bug(s) of disabled detectors");
+			analysisFinished(project, remaining, previous._findBugsProject, enabled.keySet(), preferences);
+			bugTreePanel.replaceBugCollection(remaining);
+			return;
+		}
+
+		LOGGER.info("Run " + added.size() + " enabled detector(s) on the classes of the last analysis");
+		createStarter(project, preferences, previous._findBugsProject, added, remaining.getCollection()).start();
+	}
+
+
+	/**
+	 * @param userPreferences ..
+	 * @return the enabled reporting detectors by full name
+	 */
+	@NotNull
+	static Map<String, DetectorFactory> getEnabledReportingDetectors(@NotNull final UserPreferences userPreferences) {
+		final Map<String, DetectorFactory> ret = New.map();
+		final Iterator<DetectorFactory> iterator = FindBugsPreferences.getDetectorFactorCollection().factoryIterator();
+		while (iterator.hasNext()) {
+			final DetectorFactory factory = iterator.next();
+			if (factory.isReportingDetector() && factory.getPlugin().isGloballyEnabled() && userPreferences.isDetectorEnabled(factory)) {
+				ret.put(factory.getFullName(), factory);
+			}
+		}
+		return ret;
+	}
+
+
+	/**
+	 * A bug pattern can be reported by more than one detector, so only bugs which can not be
+	 * reported by any enabled detector are removed.
+	 */
+	@NotNull
+	private static SortedBugCollection removeBugsOfDisabledDetectors(@NotNull final SortedBugCollection bugCollection, @NotNull final Collection<DetectorFactory> enabled) {
+		final Set<String> reportedTypes = New.set();
+		for (final DetectorFactory factory : enabled) {
+			for (final BugPattern pattern : factory.getReportedBugPatterns()) {
+				reportedTypes.add(pattern.getType());
+			}
+		}
+		final Set<String> disabledTypes = New.set();
+		final Iterator<DetectorFactory> iterator = FindBugsPreferences.getDetectorFactorCollection().factoryIterator();
+		while (iterator.hasNext()) {
+			for (final BugPattern pattern : iterator.next().getReportedBugPatterns()) {
+				if (!reportedTypes.contains(pattern.getType())) {
+					disabledTypes.add(pattern.getType());
+				}
+			}
+		}
+
+		final SortedBugCollection ret = bugCollection.createEmptyCollectionWithMetadata();
+		for (final BugInstance bug : bugCollection.getCollection()) {
+			if (!disabledTypes.contains(bug.getType())) {
+				ret.add(bug, false);
+			}
+		}
+		return ret;
+	}
+
+
+	@NotNull
+	private static FindBugsStarter createStarter(
+			@NotNull final Project project,
+			@NotNull final FindBugsPreferences preferences,
+			@NotNull final FindBugsProject previousProject,
+			@NotNull final Set<DetectorFactory> detectors,
+			@NotNull final Collection<BugInstance> previousBugs
+	) {
+		return new FindBugsStarter(project, "Running FindBugs analysis for enabled detectors...", preferences) {
+			@Override
+			protected boolean isCompileBeforeAnalyze() {
+				return false; // same classes as the last analysis
+			}
+
+
+			@Override
+			protected void configure(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProject findBugsProject) {
+				findBugsProject.merge(previousProject);
+			}
+
+
+			@Nullable
+			@Override
+			Set<DetectorFactory> getDeltaDetectors() {
+				return detectors;
+			}
+
+
+			@NotNull
+			@Override
+			Collection<BugInstance> getPreviousBugs() {
+				return previousBugs;
+			}
+		};
+	}
+}
@@ -34,22 +34,23 @@ import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.util.Alarm;
-import com.intellij.util.Consumer;
 import com.intellij.util.io.storage.HeavyProcessLatch;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.jetbrains.annotations.NotNull;
 import org.twodividedbyzero.idea.findbugs.common.EventDispatchThreadHelper;
 import org.twodividedbyzero.idea.findbugs.common.FindBugsPluginConstants;
+import org.twodividedbyzero.idea.findbugs.common.util.ClassFileUtil;
 import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
 import org.twodividedbyzero.idea.findbugs.common.util.New;
 import org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.WeakHashMap;
@@ -104,7 +105,7 @@ public class FindBugsCompileAfterHook implements CompilationStatusListener, Proj
 					final Set<VirtualFile> changed = CHANGED_BY_SESSION_ID.remove(sessionId);
 					if (changed != null) {
 						if (DELAY_MS <= 0) {
-							initWorkerForAutoMake(project, changed);
+							submitChanged(project, changed);
 						} else {
 							synchronized (DELAYED_EXECUTOR_BY_PROJECT) {
 								DelayedExecutor task = DELAYED_EXECUTOR_BY_PROJECT.get(project);
@@ -123,24 +124,37 @@ public class FindBugsCompileAfterHook implements CompilationStatusListener, Proj
 
 
 	private final Project _project;
+	private final List<String> _generatedClassFiles;
 
 
 	public FindBugsCompileAfterHook(@NotNull final Project project) {
 		_project = project;
+		_generatedClassFiles = New.arrayList();
 	}
 
 
 	@Override
 	public void compilationFinished(final boolean aborted, final int errors, final int warnings, final CompileContext compileContext) {
 		// note that this is not invoked when auto make trigger compilation
+		final List<String> generatedClassFiles;
+		synchronized (_generatedClassFiles) {
+			generatedClassFiles = new ArrayList<String>(_generatedClassFiles);
+			_generatedClassFiles.clear();
+		}
 		if (!aborted && errors == 0) {
+			updateClassFileIndex(compileContext, generatedClassFiles);
 			initWorker(compileContext);
 		}
 	}
 
 
 	@Override
-	public void fileGenerated(final String s, final String s1) {
+	public void fileGenerated(final String outputRoot, final String relativePath) {
+		if (relativePath.endsWith(ClassFileUtil.CLASS_FILE_SUFFIX)) {
+			synchronized (_generatedClassFiles) {
+				_generatedClassFiles.add(new File(outputRoot, relativePath).getPath());
+			}
+		}
 	}
 
 
@@ -169,6 +183,11 @@ public class FindBugsCompileAfterHook implements CompilationStatusListener, Proj
 	public void projectClosed() {
 		CompilerManager.getInstance(_project).removeCompilationStatusListener(this);
 		setAnalyzeAfterAutomake(_project, false);
+		ClassFileWatcher.setEnabled(_project, false);
+		AnalysisScheduler.dispose(_project);
+		ClassFileIndex.dispose(_project);
+		AnalysisResultCache.dispose(_project);
+		DependencyGraph.dispose(_project);
 	}
 
 
@@ -186,6 +205,9 @@ public class FindBugsCompileAfterHook implements CompilationStatusListener, Proj
 		if (isAfterAutoMakeEnabled(_project)) {
 			setAnalyzeAfterAutomake(_project, true);
 		}
+		if (ClassFileWatcher.isEnabled(IdeaUtilImpl.getPluginComponent(_project).getPreferences())) {
+			ClassFileWatcher.setEnabled(_project, true);
+		}
 	}
 
 
@@ -209,6 +231,38 @@ public class FindBugsCompileAfterHook implements CompilationStatusListener, Proj
 	}
 
 
+	/**
+	 * Source files changed or compiled by automake are not updated here; their
+	 * entries are outdated by the time stamp of the source file (see {@link ClassFileIndex#get(VirtualFile)}).
+	 */
+	private static void updateClassFileIndex(@NotNull final CompileContext compileContext, @NotNull final List<String> generatedClassFiles) {
+		final Project project = compileContext.getProject();
+		if (null == project || generatedClassFiles.isEmpty()) {
+			return;
+		}
+		final ClassFileIndex classFileIndex = ClassFileIndex.getInstance(project);
+		final Map<VirtualFile, Long> compiled = New.map();
+		for (final VirtualFile sourceFile : getAffectedFiles(compileContext.getCompileScope())) {
+			compiled.put(sourceFile, sourceFile.getTimeStamp()); // before the source file can be edited again
+		}
+		ApplicationManager.getApplication().executeOnPooledThread(new Runnable() {
+			@Override
+			public void run() {
+				if (!project.isDisposed()) {
+					if (classFileIndex != null) {
+						classFileIndex.compiled(compiled, generatedClassFiles);
+					}
+					final DependencyGraph dependencyGraph = DependencyGraph.getInstance(project);
+					dependencyGraph.classFilesGenerated(generatedClassFiles);
+					if (isAfterAutoMakeEnabled(project) && getMaxDependents(project) > 0) {
+						dependencyGraph.build(); // ready for the next automake
+					}
+				}
+			}
+		});
+	}
+
+
 	private static void initWorker(final CompileContext compileContext) {
 		final com.intellij.openapi.project.Project project = compileContext.getProject();
 		if (null == project) { // project reload, eg: open IDEA project with unknown JRE and fix it
@@ -223,14 +277,46 @@ public class FindBugsCompileAfterHook implements CompilationStatusListener, Proj
 
 		final CompileScope compileScope = compileContext.getCompileScope();
 		final VirtualFile[] affectedFiles = getAffectedFiles(compileScope);
-		final Collection<VirtualFile> auxFiles = new ArrayList<VirtualFile>();
-		for (final VirtualFile affectedFile : affectedFiles) {
-			final Module module = compileContext.getModuleByFile(affectedFile);
-			final VirtualFile[] files = IdeaUtilImpl.getProjectClasspath(module);
-			auxFiles.addAll(Arrays.asList(files));
+		submitChanged(project, Arrays.asList(affectedFiles));
+	}
+
+
+	private static void submitChanged(@NotNull final Project project, @NotNull final Collection<VirtualFile> changed) {
+		EventDispatchThreadHelper.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				if (!project.isDisposed()) {
+					AnalysisScheduler.getInstance(project).submitChanged(changed);
+				}
+			}
+		});
+	}
+
+
+	/**
+	 * Invoked by {@link AnalysisScheduler} for the coalesced changes of one or more make/automake runs
+	 * and class file changes. The dependents of the changed classes
+	 * (see {@link FindBugsPreferences#AUTOMAKE_MAX_DEPENDENTS}) are analyzed for all of them.
+	 *
+	 * @param changed changed source files and class files (see {@link ClassFileWatcher})
+	 */
+	@NotNull
+	static FindBugsStarter createStarter(@NotNull final Project project, @NotNull final Collection<VirtualFile> changed) {
+		final FindBugsPreferences preferences = FindBugsPreferences.getPreferences(project, null);
+		final int maxDependents = preferences.getIntProperty(FindBugsPreferences.AUTOMAKE_MAX_DEPENDENTS, FindBugsPreferences.DEFAULT_AUTOMAKE_MAX_DEPENDENTS);
+		final Set<Module> modules = New.set();
+		for (final VirtualFile file : changed) {
+			final Module module = IdeaUtilImpl.findModuleForFile(file, project);
+			if (module != null) {
+				modules.add(module);
+			}
+		}
+		if (maxDependents > 0) {
+			addDependentModules(project, modules); // dependent class files need the classpath of their own module
 		}
+		final Set<String> auxClasspath = AuxClasspathSnapshot.get(modules);
 
-		new FindBugsStarter(project, "Running FindBugs analysis for affected files...", preferences, true) {
+		return new FindBugsStarter(project, "Running FindBugs analysis for affected files...", preferences, true) {
 			@Override
 			protected boolean isCompileBeforeAnalyze() {
 				return false;
@@ -238,18 +324,30 @@ public class FindBugsCompileAfterHook implements CompilationStatusListener, Proj
 
 
 			@Override
-			protected void createCompileScope(@NotNull final CompilerManager compilerManager, @NotNull final Consumer<CompileScope> consumer) {
-				throw new UnsupportedOperationException();
+			protected void configure(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProject findBugsProject) {
+				findBugsProject.configureAuxClasspathSnapshot(indicator, auxClasspath);
+				findBugsProject.configureSourceDirectories(indicator, changed);
+				findBugsProject.configureOutputFiles(project, changed);
+				findBugsProject.configureDependentFiles(project, indicator, maxDependents);
 			}
+		};
+	}
 
 
-			@Override
-			protected void configure(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProject findBugsProject) {
-				findBugsProject.configureAuxClasspathEntries(indicator, auxFiles);
-				findBugsProject.configureSourceDirectories(indicator, affectedFiles);
-				findBugsProject.configureOutputFiles(project, affectedFiles);
+	/**
+	 * Adds all modules which depend on {@code modules}, directly or transitively.
+	 */
+	private static void addDependentModules(@NotNull final Project project, @NotNull final Set<Module> modules) {
+		final ModuleManager moduleManager = ModuleManager.getInstance(project);
+		final List<Module> queue = new ArrayList<Module>(modules);
+		while (!queue.isEmpty()) {
+			final Module module = queue.remove(queue.size() - 1);
+			for (final Module dependent : moduleManager.getModuleDependentModules(module)) {
+				if (modules.add(dependent)) {
+					queue.add(dependent);
+				}
 			}
-		}.start();
+		}
 	}
 
 
@@ -285,50 +383,9 @@ public class FindBugsCompileAfterHook implements CompilationStatusListener, Proj
 	}
 
 
-	private static void initWorkerForAutoMake(@NotNull final Project project, @NotNull final Collection<VirtualFile> changed) {
-		ApplicationManager.getApplication().runReadAction(new Runnable() {
-			@Override
-			public void run() {
-				initWorkerForAutoMakeImpl(project, changed);
-			}
-		});
-	}
-
-
-	private static void initWorkerForAutoMakeImpl(@NotNull final Project project, @NotNull final Collection<VirtualFile> changed) {
-
-		final FindBugsPreferences preferences = FindBugsPreferences.getPreferences(project, null);
-		final Module[] modules = ModuleManager.getInstance(project).getModules();
-		final List<VirtualFile> classPaths = new LinkedList<VirtualFile>();
-		for (final Module module : modules) {
-			IdeaUtilImpl.addProjectClasspath(module, classPaths);
-		}
-
-		EventDispatchThreadHelper.invokeLater(new Runnable() {
-			@Override
-			public void run() {
-				new FindBugsStarter(project, "Running FindBugs analysis for affected files...", preferences, true) {
-					@Override
-					protected boolean isCompileBeforeAnalyze() {
-						return false;
-					}
-
-
-					@Override
-					protected void createCompileScope(@NotNull final CompilerManager compilerManager, @NotNull final Consumer<CompileScope> consumer) {
-						throw new UnsupportedOperationException();
-					}
-
-
-					@Override
-					protected void configure(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProject findBugsProject) {
-						findBugsProject.configureAuxClasspathEntries(indicator, classPaths);
-						findBugsProject.configureSourceDirectories(indicator, changed);
-						findBugsProject.configureOutputFiles(project, changed);
-					}
-				}.start();
-			}
-		});
+	private static int getMaxDependents(@NotNull final Project project) {
+		final FindBugsPreferences preferences = IdeaUtilImpl.getPluginComponent(project).getPreferences();
+		return preferences.getIntProperty(FindBugsPreferences.AUTOMAKE_MAX_DEPENDENTS, FindBugsPreferences.DEFAULT_AUTOMAKE_MAX_DEPENDENTS);
 	}
 
 
@@ -369,7 +426,7 @@ public class FindBugsCompileAfterHook implements CompilationStatusListener, Proj
 							changed = _changed;
 							_changed = null;
 						}
-						initWorkerForAutoMake(_project, changed);
+						submitChanged(_project, changed);
 					}
 				}
 			}, DELAY_MS);
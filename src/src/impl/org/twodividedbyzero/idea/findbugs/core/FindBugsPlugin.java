@@ -22,7 +22,7 @@ import com.intellij.openapi.components.PersistentStateComponent;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.options.Configurable;
 import com.intellij.openapi.project.Project;
-import com.intellij.psi.PsiFile;
+import com.intellij.openapi.vfs.VirtualFile;
 import edu.umd.cs.findbugs.BugCollection;
 import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.common.ExtendedProblemDescriptor;
@@ -61,7 +61,7 @@ public interface FindBugsPlugin extends Configurable, PersistentStateComponent<P
 
 	boolean isModuleComponent();
 
-	Map<PsiFile, List<ExtendedProblemDescriptor>> getProblems();
+	Map<VirtualFile, List<ExtendedProblemDescriptor>> getProblems();
 
 	BugCollection getBugCollection();
 }
\ No newline at end of file
@@ -40,11 +40,11 @@ import com.intellij.openapi.options.ConfigurationException;
 import com.intellij.openapi.options.SearchableConfigurable;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.MessageType;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowAnchor;
 import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.openapi.wm.ToolWindowType;
-import com.intellij.psi.PsiFile;
 import com.intellij.ui.content.Content;
 import com.intellij.ui.content.ContentFactory;
 import edu.umd.cs.findbugs.BugCollection;
@@ -291,7 +291,7 @@ public class FindBugsPluginImpl implements ProjectComponent, FindBugsPlugin, Sea
 
 
 	@Override
-	public Map<PsiFile, List<ExtendedProblemDescriptor>> getProblems() {
+	public Map<VirtualFile, List<ExtendedProblemDescriptor>> getProblems() {
 		return getToolWindowPanel().getProblems();
 	}
 
@@ -441,10 +441,18 @@ public class FindBugsPluginImpl implements ProjectComponent, FindBugsPlugin, Sea
 
 		final boolean analyzeAfterAutomake = getPreferences().getBooleanProperty(FindBugsPreferences.ANALYZE_AFTER_AUTOMAKE, false);
 		FindBugsCompileAfterHook.setAnalyzeAfterAutomake(_project, analyzeAfterAutomake);
+		ClassFileWatcher.setEnabled(_project, ClassFileWatcher.isEnabled(getPreferences()));
 
 		_preferences.applyDetectors();
 		_configPanel.updatePreferences(); // at least DetectorConfiguration needs a reload
 		_preferences.setModified(false);
+
+		final ToolWindowPanel toolWindowPanel = getToolWindowPanel();
+		if (toolWindowPanel != null) {
+			// changed detector, report and filter settings need no full re-analysis
+			DetectorDelta.settingsApplied(_project, _preferences, toolWindowPanel.getBugTreePanel());
+			toolWindowPanel.getBugTreePanel().refilter();
+		}
 	}
 
 
@@ -19,14 +19,25 @@
 package org.twodividedbyzero.idea.findbugs.core;
 
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
 import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.roots.CompilerModuleExtension;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassOwner;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.util.ClassUtil;
+import edu.umd.cs.findbugs.Plugin;
 import edu.umd.cs.findbugs.Project;
 import org.jetbrains.annotations.NotNull;
-import org.twodividedbyzero.idea.findbugs.collectors.RecurseFileCollector;
+import org.twodividedbyzero.idea.findbugs.collectors.ClassFileCollector;
 import org.twodividedbyzero.idea.findbugs.collectors.StatelessClassAdder;
+import org.twodividedbyzero.idea.findbugs.common.util.ClassFileUtil;
 import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -34,6 +45,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 
 /**
@@ -48,6 +60,94 @@ public class FindBugsProject extends Project {
 	private static final Logger LOGGER = Logger.getInstance(FindBugsProject.class.getName());
 	private List<String> _outputFiles;
 
+	/**
+	 * {@link Project} rejects duplicates by a linear search of its lists,
+	 * these sets keep adding a duplicate (common for aux and source entries) cheap.
+	 * They contain the entries as stored by {@link Project} (made absolute), see {@link #track(Set, List, int)}.
+	 */
+	private final Set<String> _files = New.set();
+	private final Set<String> _sourceDirs = New.set();
+	private final Set<String> _auxClasspathEntries = New.set();
+
+	/**
+	 * Pipelined analysis: if not null, only class files in these output directories are added.
+	 */
+	private List<String> _moduleOutputRoots;
+
+	/**
+	 * Unchanged class files added by {@link #configureDependentFiles(com.intellij.openapi.project.Project, ProgressIndicator)},
+	 * must be analyzed even if cached (see {@link AnalysisResultCache}).
+	 */
+	private final Set<String> _dependentFiles = New.set();
+
+
+	@Override
+	public boolean addFile(final String fileName) {
+		if (_moduleOutputRoots != null && !isInModuleOutput(fileName, false)) {
+			return false;
+		}
+		if (_files.contains(fileName)) {
+			return false;
+		}
+		final int count = getFileCount();
+		return super.addFile(fileName) && track(_files, getFileList(), count);
+	}
+
+
+	@Override
+	public void removeFile(final int num) {
+		_files.remove(getFile(num));
+		super.removeFile(num);
+	}
+
+
+	@Override
+	public boolean addSourceDir(final String dirName) {
+		if (_sourceDirs.contains(dirName)) {
+			return false;
+		}
+		final int count = getNumSourceDirs();
+		return super.addSourceDir(dirName) && track(_sourceDirs, getSourceDirList(), count);
+	}
+
+
+	@Override
+	public void removeSourceDir(final int num) {
+		_sourceDirs.remove(getSourceDir(num));
+		super.removeSourceDir(num);
+	}
+
+
+	@Override
+	public boolean addAuxClasspathEntry(final String auxClasspathEntry) {
+		if (_auxClasspathEntries.contains(auxClasspathEntry)) {
+			return false;
+		}
+		final int count = getNumAuxClasspathEntries();
+		return super.addAuxClasspathEntry(auxClasspathEntry) && track(_auxClasspathEntries, getAuxClasspathEntryList(), count);
+	}
+
+
+	@Override
+	public void removeAuxClasspathEntry(final int num) {
+		_auxClasspathEntries.remove(getAuxClasspathEntry(num));
+		super.removeAuxClasspathEntry(num);
+	}
+
+
+	/**
+	 * Adds the entries appended to {@code list} since {@code previousCount} to {@code set},
+	 * so the remove methods (which get the stored entry) remove the same string.
+	 *
+	 * @return true
+	 */
+	private static boolean track(@NotNull final Set<String> set, @NotNull final List<String> list, final int previousCount) {
+		for (int i = previousCount; i < list.size(); i++) {
+			set.add(list.get(i));
+		}
+		return true;
+	}
+
 
 	public void configureSourceDirectories(@NotNull final ProgressIndicator indicator, @NotNull final Collection<VirtualFile> sourceDirs) {
 		indicator.setText("Configure source directories...");
@@ -100,12 +200,29 @@ public class FindBugsProject extends Project {
 	}
 
 
+	/**
+	 * @param indicator ..
+	 * @param snapshot  see {@link AuxClasspathSnapshot}
+	 */
+	public void configureAuxClasspathSnapshot(@NotNull final ProgressIndicator indicator, @NotNull final Collection<String> snapshot) {
+		indicator.setText("Collecting auxiliary classpath entries...");
+		for (final String path : snapshot) {
+			addAuxClasspathEntry(path);
+		}
+	}
+
+
+	/**
+	 * @param files source files; class files (f. e. of an external build) are added as they are
+	 */
 	public void configureOutputFiles(@NotNull final com.intellij.openapi.project.Project project, @NotNull final Collection<VirtualFile> files) {
 		_outputFiles = asPathList(files);
 		final StatelessClassAdder sca = new StatelessClassAdder(this, project);
 		for (final VirtualFile file : files) {
 			if (IdeaUtilImpl.isValidFileType(file.getFileType())) {
-				sca.addContainingClasses(file);
+				sca.addClassFiles(file);
+			} else if (!file.isDirectory() && file.getName().endsWith(ClassFileUtil.CLASS_FILE_SUFFIX)) {
+				addFile(file.getPresentableUrl());
 			}
 		}
 	}
@@ -116,7 +233,7 @@ public class FindBugsProject extends Project {
 		final StatelessClassAdder sca = new StatelessClassAdder(this, project);
 		for (final VirtualFile file : files) {
 			if (IdeaUtilImpl.isValidFileType(file.getFileType())) {
-				sca.addContainingClasses(file);
+				sca.addClassFiles(file);
 			}
 		}
 	}
@@ -131,7 +248,61 @@ public class FindBugsProject extends Project {
 	}
 
 
+	/**
+	 * Single file fast path, see {@link #configureOutputClasses(com.intellij.openapi.project.Project, PsiClass[])}.
+	 */
+	public void configureOutputClasses(@NotNull final com.intellij.openapi.project.Project project, @NotNull final VirtualFile[] files) {
+		final PsiManager psiManager = PsiManager.getInstance(project);
+		final List<PsiClass> psiClasses = new ArrayList<PsiClass>();
+		for (final VirtualFile file : files) {
+			final PsiFile psiFile = psiManager.findFile(file);
+			if (psiFile instanceof PsiClassOwner) {
+				psiClasses.addAll(Arrays.asList(((PsiClassOwner) psiFile).getClasses()));
+			}
+		}
+		configureOutputClasses(project, psiClasses.toArray(new PsiClass[psiClasses.size()]));
+		_outputFiles = asPathList(files);
+	}
+
+
+	/**
+	 * Single class fast path: adds the class file of each {@code psiClass} and all its nested and
+	 * anonymous classes ({@code $} class files compiled from the same source file) found in the compiler
+	 * output, without walking the PSI.
+	 */
+	public void configureOutputClasses(@NotNull final com.intellij.openapi.project.Project project, @NotNull final PsiClass[] psiClasses) {
+		_outputFiles = new ArrayList<String>();
+		for (final PsiClass psiClass : psiClasses) {
+			final VirtualFile vFile = IdeaUtilImpl.getVirtualFile(psiClass);
+			if (vFile == null) {
+				continue;
+			}
+			final VirtualFile compilerOutputPath = IdeaUtilImpl.getCompilerOutputPath(vFile, project);
+			final String className = ClassUtil.getJVMClassName(psiClass);
+			if (compilerOutputPath == null || className == null) {
+				LOGGER.debug("No output path or class name for " + psiClass);
+				continue;
+			}
+			_outputFiles.add(vFile.getPath());
+			final int dot = className.lastIndexOf('.');
+			final File outputRoot = new File(compilerOutputPath.getPresentableUrl());
+			final File dir = dot < 0 ? outputRoot : new File(outputRoot, className.substring(0, dot).replace('.', File.separatorChar));
+			final String simpleName = className.substring(dot + 1);
+			final File classFile = new File(dir, simpleName + ClassFileUtil.CLASS_FILE_SUFFIX);
+			if (classFile.isFile()) {
+				addFile(classFile.getPath());
+			}
+			for (final String file : ClassFileUtil.findNestedClassFiles(dir, simpleName, vFile.getName())) {
+				addFile(file);
+			}
+		}
+	}
+
+
 	public void configureOutputFiles(@NotNull final com.intellij.openapi.project.Project project, @NotNull ProgressIndicator indicator, @NotNull final String path) {
+		if (_moduleOutputRoots != null && !isInModuleOutput(path, true)) {
+			return;
+		}
 		final VirtualFile fileByPath = IdeaUtilImpl.findFileByPath(path);
 		if (fileByPath != null) {
 			_outputFiles = Arrays.asList(fileByPath.getPath());
@@ -139,18 +310,139 @@ public class FindBugsProject extends Project {
 			LOGGER.error("Could not configure outputFiles! path=" + path);
 		}
 		indicator.setText("Collecting files for analysis...");
-		final int[] count = new int[1];
-		RecurseFileCollector.addFiles(project, indicator, this, new File(path), count);
+		ClassFileCollector.addFiles(project, indicator, this, Collections.singletonList(new File(path)));
 	}
 
 
 	public void configureOutputFiles(@NotNull final com.intellij.openapi.project.Project project, @NotNull ProgressIndicator indicator, @NotNull final String[] paths) {
 		_outputFiles = new ArrayList<String>();
 		indicator.setText("Collecting files for analysis...");
-		final int[] count = new int[1];
+		final List<File> dirs = new ArrayList<File>(paths.length);
 		for (final String path : paths) {
+			if (_moduleOutputRoots != null && !isInModuleOutput(path, true)) {
+				continue;
+			}
 			_outputFiles.add(path);
-			RecurseFileCollector.addFiles(project, indicator, this, new File(path), count);
+			dirs.add(new File(path));
+		}
+		ClassFileCollector.addFiles(project, indicator, this, dirs);
+	}
+
+
+	/**
+	 * Adds the class files of the direct dependents of all class files added so far, see {@link DependencyGraph}.
+	 * Must be invoked after the changed class files were added. Used by all automatic runs (after make,
+	 * automake and class file changes), the aux classpath must include the modules of the dependents.
+	 *
+	 * @param project       ..
+	 * @param indicator     ..
+	 * @param maxDependents see {@link org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences#AUTOMAKE_MAX_DEPENDENTS}
+	 */
+	void configureDependentFiles(@NotNull final com.intellij.openapi.project.Project project, @NotNull final ProgressIndicator indicator, final int maxDependents) {
+		if (maxDependents <= 0) {
+			return;
+		}
+		final List<String> changed = new ArrayList<String>();
+		for (final String file : getFileList()) {
+			if (file.endsWith(ClassFileUtil.CLASS_FILE_SUFFIX)) {
+				changed.add(file);
+			}
+		}
+		if (changed.isEmpty()) {
+			return;
+		}
+		indicator.setText("Collecting dependent files for analysis...");
+		for (final String file : DependencyGraph.getInstance(project).getDependentClassFiles(changed, maxDependents)) {
+			if (addFile(file)) {
+				_dependentFiles.add(file);
+			}
+		}
+		LOGGER.debug("Added " + _dependentFiles.size() + " dependent class file(s) of " + changed.size() + " changed class file(s)");
+	}
+
+
+	boolean isDependentFile(@NotNull final String file) {
+		return _dependentFiles.contains(file);
+	}
+
+
+	/**
+	 * @param files               class files to analyze
+	 * @param auxClasspathEntries ..
+	 * @return a copy of this project (source dirs, plugin status and configured output files) which analyzes only {@code files}
+	 */
+	@NotNull
+	FindBugsProject createShard(@NotNull final Collection<String> files, @NotNull final Collection<String> auxClasspathEntries) {
+		final FindBugsProject ret = new FindBugsProject();
+		ret.setProjectName(getProjectName());
+		ret.setGuiCallback(getGuiCallback());
+		for (final Plugin plugin : Plugin.getAllPlugins()) {
+			ret.setPluginStatusTrinary(plugin.getPluginId(), getPluginStatus(plugin));
+		}
+		for (final String sourceDir : getSourceDirList()) {
+			ret.addSourceDir(sourceDir);
+		}
+		for (final String auxClasspathEntry : auxClasspathEntries) {
+			ret.addAuxClasspathEntry(auxClasspathEntry);
+		}
+		for (final String file : files) {
+			ret.addFile(file);
+		}
+		ret._outputFiles = _outputFiles;
+		return ret;
+	}
+
+
+	/**
+	 * Must be called inside a read action before any configure method.
+	 *
+	 * @param module only class files in the production and test output of this module are added
+	 */
+	void restrictToModule(@NotNull final Module module) {
+		_moduleOutputRoots = new ArrayList<String>();
+		final CompilerModuleExtension extension = CompilerModuleExtension.getInstance(module);
+		if (extension != null) {
+			for (final String url : new String[] {extension.getCompilerOutputUrl(), extension.getCompilerOutputUrlForTests()}) {
+				if (url != null) {
+					_moduleOutputRoots.add(FileUtil.toSystemDependentName(VfsUtilCore.urlToPath(url)));
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * @param path         ..
+	 * @param orContaining also accept a parent directory of an output root
+	 */
+	private boolean isInModuleOutput(@NotNull final String path, final boolean orContaining) {
+		for (final String root : _moduleOutputRoots) {
+			if (FileUtil.isAncestor(root, path, false) || (orContaining && FileUtil.isAncestor(path, root, false))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Adds all files, source directories, aux classpath entries and configured output files of {@code other}.
+	 */
+	void merge(@NotNull final FindBugsProject other) {
+		for (final String file : other.getFileList()) {
+			addFile(file);
+		}
+		for (final String sourceDir : other.getSourceDirList()) {
+			addSourceDir(sourceDir);
+		}
+		for (final String auxClasspathEntry : other.getAuxClasspathEntryList()) {
+			addAuxClasspathEntry(auxClasspathEntry);
+		}
+		if (other._outputFiles != null) {
+			if (_outputFiles == null) {
+				_outputFiles = new ArrayList<String>();
+			}
+			_outputFiles.addAll(other._outputFiles);
 		}
 	}
 
@@ -26,7 +26,8 @@ import com.intellij.openapi.compiler.CompileContext;
 import com.intellij.openapi.compiler.CompileScope;
 import com.intellij.openapi.compiler.CompileStatusNotification;
 import com.intellij.openapi.compiler.CompilerManager;
-import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.Task;
@@ -36,28 +37,39 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.util.Consumer;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.DetectorFactory;
 import edu.umd.cs.findbugs.DetectorFactoryCollection;
 import edu.umd.cs.findbugs.FindBugs2;
 import edu.umd.cs.findbugs.Plugin;
 import edu.umd.cs.findbugs.SortedBugCollection;
 import edu.umd.cs.findbugs.config.ProjectFilterSettings;
 import edu.umd.cs.findbugs.config.UserPreferences;
-import org.dom4j.DocumentException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.common.EventDispatchThreadHelper;
 import org.twodividedbyzero.idea.findbugs.common.FindBugsPluginConstants;
 import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
 import org.twodividedbyzero.idea.findbugs.gui.PluginGuiCallback;
 import org.twodividedbyzero.idea.findbugs.messages.AnalysisAbortingListener;
 import org.twodividedbyzero.idea.findbugs.messages.MessageBusManager;
 import org.twodividedbyzero.idea.findbugs.preferences.AnalysisEffort;
 import org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences;
 
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 
@@ -67,15 +79,17 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public abstract class FindBugsStarter implements AnalysisAbortingListener {
 
-	private static final Logger LOGGER = Logger.getInstance(FindBugsStarter.class.getName());
-
 	private final Project _project;
 	private final String _title;
 	private final FindBugsPreferences _preferences;
-	private final Map<String, String> _bugCategories;
+	private final ResultFilter _resultFilter;
 	private final boolean _startInBackground;
 	private final FindBugsPlugin _findBugsPlugin;
 	private final AtomicBoolean _cancellingByUser;
+	/**
+	 * See {@link DetectorDelta#getEnabledReportingDetectors(UserPreferences)}.
+	 */
+	private Set<String> _detectors;
 
 
 	public FindBugsStarter(@NotNull final Project project, @NotNull final String title, @NotNull final FindBugsPreferences preferences) {
@@ -87,7 +101,7 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 		_project = project;
 		_title = title;
 		_preferences = preferences;
-		_bugCategories = new HashMap<String, String>(preferences.getBugCategories());
+		_resultFilter = ResultFilter.create(project, preferences);
 		_startInBackground = preferences.getBooleanProperty(FindBugsPreferences.RUN_ANALYSIS_IN_BACKGROUND, false) || forceStartInBackground;
 		_findBugsPlugin = IdeaUtilImpl.getPluginComponent(_project);
 		_cancellingByUser = new AtomicBoolean();
@@ -105,34 +119,173 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 	}
 
 
+	/**
+	 * @return true if the compile scope of this run consists of whole modules, so the modules may be made
+	 * and analyzed one after the other (see {@link FindBugsPreferences#PIPELINE_COMPILE_AND_ANALYZE})
+	 */
+	protected boolean isPipelineSupported() {
+		return false;
+	}
+
+
+	/**
+	 * @return null to run all enabled detectors, otherwise only these reporting detectors are run (see {@link DetectorDelta})
+	 */
+	@Nullable
+	Set<DetectorFactory> getDeltaDetectors() {
+		return null;
+	}
+
+
+	/**
+	 * @return bugs of the last analysis which are reported before the analysis starts (see {@link DetectorDelta})
+	 */
+	@NotNull
+	Collection<BugInstance> getPreviousBugs() {
+		return Collections.emptyList();
+	}
+
+
 	public final void start() {
 		EventDispatchThreadHelper.checkEDT();
+		AnalysisScheduler.getInstance(_project).submit(this);
+	}
+
+
+	/**
+	 * Invoked by {@link AnalysisScheduler}.
+	 */
+	final void startNow() {
+		EventDispatchThreadHelper.checkEDT();
+		_cancellingByUser.set(false); // an abort while queued was meant for the previous run
 		if (isCompileBeforeAnalyze()) {
 			final boolean isAnalyzeAfterCompile = _preferences.isAnalyzeAfterCompile();
 			final CompilerManager compilerManager = CompilerManager.getInstance(_project);
 			createCompileScope(compilerManager, new Consumer<CompileScope>() {
 				@Override
 				public void consume(@Nullable final CompileScope compileScope) {
-					if (compileScope != null) {
+					if (compileScope != null && !_cancellingByUser.get()) {
+						if (isPipelined() && !isAnalyzeAfterCompile) {
+							final List<Module> modules = getSortedModules(compileScope);
+							if (modules.size() > 1) {
+								startPipelined(compilerManager, modules);
+								return;
+							}
+						}
 						compilerManager.make(compileScope, new CompileStatusNotification() {
 							@Override
 							public void finished(final boolean aborted, final int errors, final int warnings, final CompileContext compileContext) {
-								if (!aborted && errors == 0 && !isAnalyzeAfterCompile) {
-									EventDispatchThreadHelper.checkEDT(); // see javadoc of CompileStatusNotification
-									startImpl();
+								EventDispatchThreadHelper.checkEDT(); // see javadoc of CompileStatusNotification
+								if (!aborted && errors == 0 && !isAnalyzeAfterCompile && !_cancellingByUser.get()) {
+									startImpl(null);
+								} else {
+									runEnded();
 								}
 							}
 						});
+					} else {
+						runEnded();
 					}
 				}
 			});
 		} else {
-			startImpl();
+			startImpl(null);
 		}
 	}
 
 
-	private void startImpl() {
+	/**
+	 * Pipelined compile-then-analyze per module, see {@link #startPipelined(CompilerManager, List)}.
+	 * Only used by runs which opt in with {@link #isPipelineSupported()}; file based runs (file, package,
+	 * scope, selection, changelist) keep their own scope because the pipeline makes whole modules.
+	 */
+	private boolean isPipelined() {
+		return isPipelineSupported() && _preferences.getBooleanProperty(FindBugsPreferences.PIPELINE_COMPILE_AND_ANALYZE, false);
+	}
+
+
+	/**
+	 * Cancels this run without aborting other (queued) runs. A running make is not interrupted, the
+	 * analysis is not started (or the pipeline stops) when it has finished.
+	 */
+	final void cancel() {
+		_cancellingByUser.set(true);
+	}
+
+
+	/**
+	 * Invoked by {@link AnalysisScheduler} when the run has ended or was dropped.
+	 */
+	final void dispose() {
+		EventDispatchThreadHelper.checkEDT();
+		MessageBusManager.unsubscribe(_project, this);
+	}
+
+
+	private void runEnded() {
+		EventDispatchThreadHelper.checkEDT();
+		AnalysisScheduler.runEnded(_project, this);
+	}
+
+
+	/**
+	 * Makes the modules one after the other; the analysis of a module starts as soon as its make
+	 * finished and overlaps the make of the next module.
+	 *
+	 * @param modules in dependency order
+	 */
+	private void startPipelined(@NotNull final CompilerManager compilerManager, @NotNull final List<Module> modules) {
+		final CompiledModules compiledModules = new CompiledModules();
+		startImpl(compiledModules);
+		makeNext(compilerManager, modules.iterator(), compiledModules);
+	}
+
+
+	/**
+	 * Stops after the running make if this run was cancelled (aborted or preempted, see {@link AnalysisScheduler}).
+	 */
+	private void makeNext(@NotNull final CompilerManager compilerManager, @NotNull final Iterator<Module> modules, @NotNull final CompiledModules compiledModules) {
+		if (compiledModules.isDone() || !modules.hasNext() || _cancellingByUser.get()) {
+			compiledModules.done();
+			return;
+		}
+		final Module module = modules.next();
+		compilerManager.make(compilerManager.createModuleCompileScope(module, false), new CompileStatusNotification() {
+			@Override
+			public void finished(final boolean aborted, final int errors, final int warnings, final CompileContext compileContext) {
+				EventDispatchThreadHelper.checkEDT(); // see javadoc of CompileStatusNotification
+				if (aborted || errors > 0 || _cancellingByUser.get()) {
+					compiledModules.done();
+				} else {
+					compiledModules.add(module);
+					makeNext(compilerManager, modules, compiledModules);
+				}
+			}
+		});
+	}
+
+
+	/**
+	 * @return affected modules of {@code compileScope}, dependencies first
+	 */
+	@NotNull
+	private List<Module> getSortedModules(@NotNull final CompileScope compileScope) {
+		final Set<Module> affected = New.set();
+		Collections.addAll(affected, compileScope.getAffectedModules());
+		final List<Module> ret = New.arrayList();
+		for (final Module module : ModuleManager.getInstance(_project).getSortedModules()) {
+			if (affected.contains(module)) {
+				ret.add(module);
+			}
+		}
+		return ret;
+	}
+
+
+	/**
+	 * @param compiledModules null to analyze the whole configured project at once
+	 */
+	private void startImpl(@Nullable final CompiledModules compiledModules) {
 		MessageBusManager.publishAnalysisStarted(_project);
 
 		if (Boolean.valueOf(_preferences.getProperty(FindBugsPreferences.TOOLWINDOW_TO_FRONT))) {
@@ -146,9 +299,20 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 				indicator.setIndeterminate(true);
 				indicator.setText("Configure FindBugs...");
 				try {
-					asyncStart(indicator);
+					if (compiledModules != null) {
+						asyncStartPipelined(indicator, compiledModules);
+					} else {
+						asyncStart(indicator);
+					}
 				} catch (ProcessCanceledException e) {
 					MessageBusManager.publishAnalysisAbortedToEDT(_project);
+				} finally {
+					EventDispatchThreadHelper.invokeLater(new Runnable() {
+						@Override
+						public void run() {
+							runEnded();
+						}
+					});
 				}
 			}
 			@Override
@@ -160,55 +324,237 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 
 
 	private void asyncStart(@NotNull final ProgressIndicator indicator) {
+		final UserPreferences userPrefs = createUserPreferences();
+		final FindBugsProject findBugsProject = createFindBugsProject();
+		configureInReadAction(indicator, findBugsProject, null);
 
-		final UserPreferences userPrefs = _preferences.getUserPreferences();
-		{
-			userPrefs.setEffort(_preferences.getProperty(FindBugsPreferences.ANALYSIS_EFFORT_LEVEL, AnalysisEffort.DEFAULT.getEffortLevel()));
-			final ProjectFilterSettings projectFilterSettings = userPrefs.getFilterSettings();
-			projectFilterSettings.setMinPriority(_preferences.getProperty(FindBugsPreferences.MIN_PRIORITY_TO_REPORT));
-			configureSelectedCategories(_preferences, projectFilterSettings);
-			userPrefs.setIncludeFilterFiles(_preferences.getIncludeFiltersMap());
-			userPrefs.setExcludeBugsFiles(_preferences.getExcludeBaselineBugsMap());
-			userPrefs.setExcludeFilterFiles(_preferences.getExcludeFiltersMap());
+		final Result result = analyze(indicator, findBugsProject, userPrefs, startWarmCache(userPrefs), true);
+		finish(result._bugCollection, findBugsProject, result._error, result._canceled);
+	}
+
+
+	/**
+	 * Analyzes each module as soon as its make finished, see {@link #startPipelined(CompilerManager, List)}.
+	 * The results of all modules are published as one analysis.
+	 */
+	private void asyncStartPipelined(@NotNull final ProgressIndicator indicator, @NotNull final CompiledModules compiledModules) {
+		final UserPreferences userPrefs = createUserPreferences();
+		final WarmAnalysisCache warmCache = startWarmCache(userPrefs);
+		final FindBugsProject mergedProject = createFindBugsProject();
+		final List<SortedBugCollection> bugCollections = new ArrayList<SortedBugCollection>();
+		Throwable error = null;
+		boolean canceled = false;
+		try {
+			Module module;
+			while (!canceled && (module = compiledModules.next(indicator, _cancellingByUser)) != null) {
+				indicator.setText("Configure FindBugs for module '" + module.getName() + "'...");
+				final FindBugsProject findBugsProject = createFindBugsProject();
+				configureInReadAction(indicator, findBugsProject, module);
+				final Result result = analyze(indicator, findBugsProject, userPrefs, warmCache, bugCollections.isEmpty());
+				mergedProject.merge(findBugsProject);
+				bugCollections.add(result._bugCollection);
+				if (error == null) {
+					error = result._error;
+				}
+				canceled = result._canceled;
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			canceled = true;
+		} finally {
+			compiledModules.done(); // stops the make of the remaining modules
 		}
+		canceled = canceled || _cancellingByUser.get() || indicator.isCanceled();
+		finish(AnalysisShards.merge(mergedProject, bugCollections), mergedProject, error, canceled);
+	}
 
-		final FindBugsProject findBugsProject = new FindBugsProject();
-		{
-			findBugsProject.setProjectName(_project.getName());
-			for (final Plugin plugin : Plugin.getAllPlugins()) {
-				findBugsProject.setPluginStatusTrinary(plugin.getPluginId(), !_preferences.isPluginDisabled(plugin.getPluginId()));
+
+	/**
+	 * The engine reports all bugs (lowest priority, all categories, no filter files);
+	 * the filter settings are applied afterwards by {@link ResultFilter}.
+	 */
+	@NotNull
+	private UserPreferences createUserPreferences() {
+		final UserPreferences ret = _preferences.getUserPreferences().clone();
+		ret.setEffort(_preferences.getProperty(FindBugsPreferences.ANALYSIS_EFFORT_LEVEL, AnalysisEffort.DEFAULT.getEffortLevel()));
+		final ProjectFilterSettings projectFilterSettings = ProjectFilterSettings.createDefault();
+		projectFilterSettings.setMinPriority(ProjectFilterSettings.LOW_PRIORITY);
+		for (final String category : _preferences.getBugCategories().keySet()) {
+			projectFilterSettings.addCategory(category);
+		}
+		ret.setProjectFilterSettings(projectFilterSettings);
+		ret.setIncludeFilterFiles(new HashMap<String, Boolean>());
+		ret.setExcludeBugsFiles(new HashMap<String, Boolean>());
+		ret.setExcludeFilterFiles(new HashMap<String, Boolean>());
+		_detectors = DetectorDelta.getEnabledReportingDetectors(ret).keySet();
+		final Set<DetectorFactory> deltaDetectors = getDeltaDetectors();
+		if (deltaDetectors != null) {
+			final Iterator<DetectorFactory> iterator = FindBugsPreferences.getDetectorFactorCollection().factoryIterator();
+			while (iterator.hasNext()) {
+				final DetectorFactory factory = iterator.next();
+				if (factory.isReportingDetector() && !deltaDetectors.contains(factory)) {
+					ret.enableDetector(factory, false);
+				}
 			}
-			findBugsProject.setGuiCallback(new PluginGuiCallback(_findBugsPlugin));
 		}
+		return ret;
+	}
 
-		final SortedBugCollection bugCollection = new SortedBugCollection(findBugsProject);
-		bugCollection.setDoNotUseCloud(true);
 
+	@NotNull
+	private FindBugsProject createFindBugsProject() {
+		final FindBugsProject ret = new FindBugsProject();
+		ret.setProjectName(_project.getName());
+		for (final Plugin plugin : Plugin.getAllPlugins()) {
+			ret.setPluginStatusTrinary(plugin.getPluginId(), !_preferences.isPluginDisabled(plugin.getPluginId()));
+		}
+		ret.setGuiCallback(new PluginGuiCallback(_findBugsPlugin));
+		return ret;
+	}
+
+
+	/**
+	 * @param module if not null, only class files of this module are added (pipelined mode)
+	 */
+	private void configureInReadAction(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProject findBugsProject, @Nullable final Module module) {
 		ApplicationManager.getApplication().runReadAction(new Runnable() {
 			@Override
 			public void run() {
+				if (module != null) {
+					findBugsProject.restrictToModule(module);
+				}
 				configure(indicator, findBugsProject);
 			}
 		});
+		final ClassFileIndex classFileIndex = ClassFileIndex.getInstance(_project);
+		if (classFileIndex != null) {
+			classFileIndex.save(); // class files recorded by StatelessClassAdder
+		}
+	}
 
-		final Reporter reporter = new Reporter(_project, bugCollection, _bugCategories, indicator, _cancellingByUser);
+
+	@Nullable
+	private WarmAnalysisCache startWarmCache(@NotNull final UserPreferences userPrefs) {
+		final WarmAnalysisCache ret = WarmAnalysisCache.getInstance(_project);
+		if (ret != null) {
+			ret.startRun(WarmAnalysisCache.configurationKey(_preferences));
+		}
+		return ret;
+	}
+
+
+	/**
+	 * @param reportPreviousBugs false for all but the first module of a pipelined analysis, see {@link #getPreviousBugs()}
+	 */
+	@NotNull
+	private Result analyze(
+			@NotNull final ProgressIndicator indicator,
+			@NotNull final FindBugsProject findBugsProject,
+			@NotNull final UserPreferences userPrefs,
+			@Nullable final WarmAnalysisCache warmCache,
+			final boolean reportPreviousBugs
+	) {
+		final AnalysisResultCache cache = getDeltaDetectors() == null ? AnalysisResultCache.getInstance(_project) : null; // do not cache results of some detectors
+		AnalysisResultCache.Lookup lookup = null;
+		if (cache != null) {
+			lookup = cache.lookup(indicator, findBugsProject, AnalysisResultCache.fingerprint(_preferences, userPrefs));
+		}
+
+		final List<FindBugsProject> shards = AnalysisShards.split(findBugsProject, _preferences.getBooleanProperty(FindBugsPreferences.RUN_ANALYSIS_IN_PARALLEL, false));
+		final ShardProgress shardProgress = shards.size() > 1 ? new ShardProgress(indicator, shards.size()) : null;
+		final List<Reporter> reporters = new ArrayList<Reporter>(shards.size());
+		for (int i = 0; i < shards.size(); i++) {
+			reporters.add(createReporter(shardProgress != null ? shardProgress.getIndicator(i) : indicator, shards.get(i), userPrefs));
+		}
+		if (lookup != null) {
+			reporters.get(0).reportCachedBugs(lookup.getCachedBugs());
+		}
+		if (reportPreviousBugs) {
+			final Collection<BugInstance> previousBugs = getPreviousBugs();
+			if (!previousBugs.isEmpty()) {
+				reporters.get(0).reportCachedBugs(previousBugs);
+			}
+		}
+
+		final Throwable error;
+		final SortedBugCollection bugCollection;
+		if (shards.size() == 1) {
+			indicator.setText("Start FindBugs...");
+			error = execute(findBugsProject, reporters.get(0), userPrefs, warmCache);
+			bugCollection = reporters.get(0).getBugCollection();
+		} else {
+			indicator.setText("Start FindBugs (" + shards.size() + " shards)...");
+			error = executeSharded(shards, reporters, shardProgress, userPrefs, warmCache);
+			final List<SortedBugCollection> bugCollections = new ArrayList<SortedBugCollection>(reporters.size());
+			for (final Reporter reporter : reporters) {
+				bugCollections.add(reporter.getBugCollection());
+			}
+			bugCollection = AnalysisShards.merge(findBugsProject, bugCollections);
+		}
+
+		if (warmCache != null) {
+			warmCache.logFootprint();
+		}
+
+		final boolean canceled = isCanceled(reporters);
+		if (!canceled && lookup != null && error == null) {
+			cache.update(lookup, bugCollection);
+		}
+		return new Result(bugCollection, error, canceled);
+	}
+
+
+	private void finish(
+			@NotNull final SortedBugCollection bugCollection,
+			@NotNull final FindBugsProject findBugsProject,
+			@Nullable final Throwable error,
+			final boolean canceled
+	) {
+		if (!canceled && error == null) {
+			DetectorDelta.analysisFinished(_project, bugCollection, findBugsProject, _detectors, _preferences);
+		}
+		if (canceled) {
+			MessageBusManager.publishAnalysisAbortedToEDT(_project);
+		} else {
+			MessageBusManager.publishAnalysisFinishedToEDT(_project, bugCollection, findBugsProject, error);
+		}
+
+		bugCollection.setDoNotUseCloud(false);
+		bugCollection.setTimestamp(System.currentTimeMillis());
+		bugCollection.reinitializeCloud();
+	}
+
+
+	@NotNull
+	private Reporter createReporter(@NotNull final ProgressIndicator indicator, @NotNull final FindBugsProject findBugsProject, @NotNull final UserPreferences userPrefs) {
+		final SortedBugCollection bugCollection = new SortedBugCollection(findBugsProject);
+		bugCollection.setDoNotUseCloud(true);
+		final Reporter reporter = new Reporter(_project, bugCollection, _resultFilter, indicator, _cancellingByUser);
 		reporter.setPriorityThreshold(userPrefs.getUserDetectorThreshold());
+		return reporter;
+	}
+
 
-		final FindBugs2 engine = new FindBugs2();
+	@Nullable
+	private Throwable execute(
+			@NotNull final FindBugsProject findBugsProject,
+			@NotNull final Reporter reporter,
+			@NotNull final UserPreferences userPrefs,
+			@Nullable final WarmAnalysisCache warmCache
+	) {
+		final FindBugs2 engine = warmCache != null ? warmCache.createEngine() : new FindBugs2();
 		{
 			engine.setNoClassOk(true);
 			engine.setMergeSimilarWarnings(false);
 			engine.setBugReporter(reporter);
 			engine.setProject(findBugsProject);
 			engine.setProgressCallback(reporter);
-			configureFilter(engine, _project, userPrefs);
 
 			final DetectorFactoryCollection factoryCollection = FindBugsPreferences.getDetectorFactorCollection();
 			engine.setDetectorFactoryCollection(factoryCollection);
 			engine.setUserPreferences(userPrefs);
 		}
 
-		indicator.setText("Start FindBugs...");
 		Throwable error = null;
 		try {
 			engine.execute();
@@ -219,20 +565,82 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 		} finally {
 			engine.dispose();
 		}
+		return error;
+	}
 
-		if (reporter.isCanceled()) {
-			MessageBusManager.publishAnalysisAbortedToEDT(_project);
-		} else {
-			MessageBusManager.publishAnalysisFinishedToEDT(_project, reporter.getBugCollection(), findBugsProject, error);
+
+	/**
+	 * Each shard is analyzed by its own engine ; FindBugs keeps its analysis context thread local.
+	 * Each shard reports to its own indicator of {@code shardProgress} ; cancel is propagated by the parent indicator, see {@link Reporter}.
+	 */
+	@Nullable
+	private Throwable executeSharded(
+			@NotNull final List<FindBugsProject> shards,
+			@NotNull final List<Reporter> reporters,
+			@NotNull final ShardProgress shardProgress,
+			@NotNull final UserPreferences userPrefs,
+			@Nullable final WarmAnalysisCache warmCache
+	) {
+		// one pooled thread per shard, the shard count is limited by the available processors (see AnalysisShards)
+		final List<Future<Throwable>> futures = new ArrayList<Future<Throwable>>(shards.size());
+		for (int i = 0; i < shards.size(); i++) {
+			final int index = i;
+			final FindBugsProject shard = shards.get(i);
+			final Reporter reporter = reporters.get(i);
+			futures.add(ApplicationManager.getApplication().executeOnPooledThread(new Callable<Throwable>() {
+				@Override
+				public Throwable call() {
+					try {
+						return execute(shard, reporter, userPrefs, warmCache);
+					} finally {
+						shardProgress.shardFinished(index);
+					}
+				}
+			}));
 		}
 
-		bugCollection.setDoNotUseCloud(false);
-		bugCollection.setTimestamp(System.currentTimeMillis());
-		bugCollection.reinitializeCloud();
+		Throwable error = null;
+		try {
+			for (final Future<Throwable> future : futures) {
+				final Throwable e = future.get();
+				if (error == null) {
+					error = e;
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			_cancellingByUser.set(true);
+		} catch (final ExecutionException e) {
+			error = e.getCause();
+		} finally {
+			for (final Future<Throwable> future : futures) {
+				future.cancel(true);
+			}
+		}
+		return error;
 	}
 
 
-	protected abstract void createCompileScope(@NotNull final CompilerManager compilerManager, @NotNull final  Consumer<CompileScope> consumer);
+	private static boolean isCanceled(@NotNull final List<Reporter> reporters) {
+		for (final Reporter reporter : reporters) {
+			if (reporter.isCanceled()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Only invoked if {@link #isCompileBeforeAnalyze()} is true. The default provides no scope,
+	 * so nothing is compiled and analyzed; starters which never compile do not need to override it.
+	 *
+	 * @param compilerManager ..
+	 * @param consumer        receives the scope to compile, or null to end the run
+	 */
+	protected void createCompileScope(@NotNull final CompilerManager compilerManager, @NotNull final  Consumer<CompileScope> consumer) {
+		consumer.consume(null);
+	}
 
 
 	// like CompilerManagerImpl#createFilesCompileScope but Collection based
@@ -256,43 +664,59 @@ public abstract class FindBugsStarter implements AnalysisAbortingListener {
 	}
 
 
-	private static void configureSelectedCategories(@NotNull final FindBugsPreferences preferences, @NotNull final ProjectFilterSettings filterSettings) {
-		for (final Map.Entry<String, String> category : preferences.getBugCategories().entrySet()) {
-			if ("true".equals(category.getValue())) {
-				filterSettings.addCategory(category.getKey());
-			} else {
-				filterSettings.removeCategory(category.getKey());
-			}
+	private static final class Result {
+		private final SortedBugCollection _bugCollection;
+		private final Throwable _error;
+		private final boolean _canceled;
+
+
+		private Result(@NotNull final SortedBugCollection bugCollection, @Nullable final Throwable error, final boolean canceled) {
+			_bugCollection = bugCollection;
+			_error = error;
+			_canceled = canceled;
 		}
 	}
 
 
-	private static void configureFilter(@NotNull final FindBugs2 engine, @NotNull final Project project, @NotNull final UserPreferences userPrefs) {
-		final Map<String, Boolean> excludeFilterFiles = userPrefs.getExcludeFilterFiles();
-		for (final Map.Entry<String, Boolean> excludeFileName : excludeFilterFiles.entrySet()) {
-			try {
-				engine.addFilter(IdeaUtilImpl.expandPathMacro(project, excludeFileName.getKey()), false);
-			} catch (final IOException e) {
-				LOGGER.error("ExcludeFilter configuration failed.", e);
-			}
+	/**
+	 * Hands the successfully made modules from the EDT over to the analysis task.
+	 */
+	private static final class CompiledModules {
+		private final BlockingQueue<Module> _queue = new LinkedBlockingQueue<Module>();
+		private volatile boolean _done;
+
+
+		void add(@NotNull final Module module) {
+			_queue.add(module);
 		}
-		final Map<String, Boolean> includeFilterFiles = userPrefs.getIncludeFilterFiles();
-		for (final Map.Entry<String, Boolean> includeFileName : includeFilterFiles.entrySet()) {
-			try {
-				engine.addFilter(IdeaUtilImpl.expandPathMacro(project, includeFileName.getKey()), true);
-			} catch (final IOException e) {
-				LOGGER.error("IncludeFilter configuration failed.", e);
-			}
+
+
+		void done() {
+			_done = true;
+		}
+
+
+		boolean isDone() {
+			return _done;
 		}
-		final Map<String, Boolean> excludeBugFiles = userPrefs.getExcludeBugsFiles();
-		for (final Map.Entry<String, Boolean> excludeBugFile : excludeBugFiles.entrySet()) {
-			try {
-				engine.excludeBaselineBugs(IdeaUtilImpl.expandPathMacro(project, excludeBugFile.getKey()));
-			} catch (final IOException e) {
-				LOGGER.error("ExcludeBaseLineBug files configuration failed.", e);
-			} catch (final DocumentException e) {
-				LOGGER.error("ExcludeBaseLineBug files configuration failed.", e);
+
+
+		/**
+		 * @return next made module or null if all modules are done or the analysis was canceled
+		 */
+		@Nullable
+		Module next(@NotNull final ProgressIndicator indicator, @NotNull final AtomicBoolean cancellingByUser) throws InterruptedException {
+			while (!indicator.isCanceled() && !cancellingByUser.get()) {
+				final boolean done = _done; // read before poll, a module is always added before done is set
+				final Module ret = _queue.poll(100, TimeUnit.MILLISECONDS);
+				if (ret != null) {
+					return ret;
+				}
+				if (done) {
+					return null;
+				}
 			}
+			return null;
 		}
 	}
 }
\ No newline at end of file
@@ -28,8 +28,8 @@ import com.intellij.openapi.module.ModuleComponent;
 import com.intellij.openapi.options.Configurable;
 import com.intellij.openapi.options.ConfigurationException;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.ToolWindow;
-import com.intellij.psi.PsiFile;
 import com.intellij.ui.content.Content;
 import edu.umd.cs.findbugs.BugCollection;
 import edu.umd.cs.findbugs.DetectorFactory;
@@ -178,7 +178,7 @@ public class ModuleComponentImpl implements FindBugsPlugin, ModuleComponent, Con
 
 
 	@Override
-	public Map<PsiFile, List<ExtendedProblemDescriptor>> getProblems() {
+	public Map<VirtualFile, List<ExtendedProblemDescriptor>> getProblems() {
 		return getToolWindowPanel().getProblems();
 	}
 
@@ -218,7 +218,15 @@ public class ModuleComponentImpl implements FindBugsPlugin, ModuleComponent, Con
 
 	@Override
 	public void apply() throws ConfigurationException {
+		_preferences.applyDetectors();
 		_preferences.setModified(false);
+
+		final ToolWindowPanel toolWindowPanel = getToolWindowPanel();
+		if (toolWindowPanel != null && getProjectPreferences().isModuleConfigEnabled(_module)) {
+			// like FindBugsPluginImpl#apply(): changed detector, report and filter settings need no full re-analysis
+			DetectorDelta.settingsApplied(_project, _preferences, toolWindowPanel.getBugTreePanel());
+			toolWindowPanel.getBugTreePanel().refilter();
+		}
 	}
 
 
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.core;
+
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Condition;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.ProjectStats;
+import org.jetbrains.annotations.NotNull;
+import org.twodividedbyzero.idea.findbugs.common.EventDispatchThreadHelper;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
+import org.twodividedbyzero.idea.findbugs.messages.MessageBusManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Transfers new bugs from a worker thread to the EDT in batches, see
+ * {@link MessageBusManager#publishNewBugInstances(Project, List, ProjectStats)}.
+ * <p>
+ * A batch is scheduled as soon as a bug is queued and no batch is pending, so bugs
+ * accumulate while the EDT is busy. The batch size adapts to the measured EDT time of
+ * the previous batch: it is halved when a batch blocks the EDT longer than
+ * {@link #TARGET_EDT_MILLIS} and doubled when it was fast and full.
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+public final class NewBugInstanceQueue {
+
+	private static final Logger LOGGER = Logger.getInstance(NewBugInstanceQueue.class.getName());
+
+	private static final int MIN_BATCH_SIZE = 16;
+	private static final int MAX_BATCH_SIZE = 4096;
+	private static final long TARGET_EDT_MILLIS = 50;
+
+	private final Project _project;
+	private final Condition<Object> _shutdownCondition;
+	private final Object _lock;
+	private List<BugInstance> _queue;
+	private ProjectStats _projectStats;
+	private boolean _scheduled;
+	private int _batchSize;
+	private int _batchCount;
+	private int _bugCount;
+
+
+	/**
+	 * @param project           ..
+	 * @param shutdownCondition if true, queued bugs are dropped
+	 */
+	public NewBugInstanceQueue(@NotNull final Project project, @NotNull final Condition<Object> shutdownCondition) {
+		_project = project;
+		_shutdownCondition = shutdownCondition;
+		_lock = new Object();
+		_queue = New.arrayList();
+		_batchSize = MIN_BATCH_SIZE;
+	}
+
+
+	/**
+	 * @param bugInstance  ..
+	 * @param projectStats the stats which are delivered with the batch (the latest one wins)
+	 */
+	public void offer(@NotNull final BugInstance bugInstance, @NotNull final ProjectStats projectStats) {
+		synchronized (_lock) {
+			_queue.add(bugInstance);
+			_projectStats = projectStats;
+			if (!_scheduled) {
+				_scheduled = true;
+				EventDispatchThreadHelper.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						publishBatch();
+					}
+				});
+			}
+		}
+	}
+
+
+	/**
+	 * Publish all queued bugs. Invoked by EDT.
+	 */
+	public void drain() {
+		EventDispatchThreadHelper.checkEDT();
+		while (publishBatch()) {
+			// next batch
+		}
+		synchronized (_lock) {
+			if (_bugCount > 0) {
+				LOGGER.info("Published " + _bugCount + " bug(s) in " + _batchCount + " batch(es), last batch size " + _batchSize);
+			}
+		}
+	}
+
+
+	/**
+	 * @return true if there are still queued bugs
+	 */
+	private boolean publishBatch() {
+		final List<BugInstance> batch;
+		final ProjectStats projectStats;
+		synchronized (_lock) {
+			if (_shutdownCondition.value(null)) {
+				_queue.clear();
+				_scheduled = false;
+				return false;
+			}
+			if (_queue.size() <= _batchSize) {
+				batch = _queue;
+				_queue = New.arrayList();
+			} else {
+				final List<BugInstance> head = _queue.subList(0, _batchSize);
+				batch = new ArrayList<BugInstance>(head);
+				head.clear();
+			}
+			projectStats = _projectStats;
+			_scheduled = false;
+		}
+		if (batch.isEmpty()) {
+			return false;
+		}
+
+		final long start = System.currentTimeMillis();
+		MessageBusManager.publishNewBugInstances(_project, batch, projectStats);
+		final long elapsed = System.currentTimeMillis() - start;
+
+		synchronized (_lock) {
+			_batchCount++;
+			_bugCount += batch.size();
+			if (elapsed > TARGET_EDT_MILLIS) {
+				_batchSize = Math.max(MIN_BATCH_SIZE, _batchSize / 2);
+			} else if (elapsed < TARGET_EDT_MILLIS / 2 && batch.size() >= _batchSize) {
+				_batchSize = Math.min(MAX_BATCH_SIZE, _batchSize * 2);
+			}
+			if (_queue.isEmpty()) {
+				return false;
+			}
+			if (!_scheduled) {
+				// give other EDT events a chance before the next batch
+				_scheduled = true;
+				EventDispatchThreadHelper.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						publishBatch();
+					}
+				});
+			}
+			return true;
+		}
+	}
+}
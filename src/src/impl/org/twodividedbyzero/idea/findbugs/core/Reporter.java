@@ -23,8 +23,6 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Condition;
-import com.intellij.util.Processor;
-import com.intellij.util.containers.TransferToEDTQueue;
 import edu.umd.cs.findbugs.AbstractBugReporter;
 import edu.umd.cs.findbugs.AnalysisError;
 import edu.umd.cs.findbugs.BugInstance;
@@ -35,10 +33,9 @@ import edu.umd.cs.findbugs.classfile.ClassDescriptor;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.twodividedbyzero.idea.findbugs.common.EventDispatchThreadHelper;
-import org.twodividedbyzero.idea.findbugs.common.util.New;
-import org.twodividedbyzero.idea.findbugs.messages.MessageBusManager;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -46,7 +43,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -58,12 +54,11 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 	private static final Logger LOGGER = Logger.getInstance(Reporter.class.getName());
 	private static final String ANALYZING_CLASSES_i18N = "Analyzing classes: ";
 
-	private final Project _project;
 	private final SortedBugCollection _bugCollection;
-	private final Map<String, String> _bugCategories;
+	private final ResultFilter _resultFilter;
 	private final ProgressIndicator _indicator;
 	private final AtomicBoolean _cancellingByUser;
-	private final TransferToEDTQueue<Runnable> _transferToEDTQueue;
+	private final NewBugInstanceQueue _newBugInstanceQueue;
 
 	private int _pass = -1;
 	private int _filteredBugCount;
@@ -77,21 +72,20 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 	Reporter(
 			@NotNull final Project project,
 			@NotNull final SortedBugCollection bugCollection,
-			@NotNull final Map<String, String> bugCategories,
+			@NotNull final ResultFilter resultFilter,
 			@NotNull final ProgressIndicator indicator,
 			@NotNull final AtomicBoolean cancellingByUser
 	) {
-		_project = project;
 		_bugCollection = bugCollection;
-		_bugCategories = bugCategories;
+		_resultFilter = resultFilter;
 		_indicator = indicator;
 		_cancellingByUser = cancellingByUser;
-		_transferToEDTQueue = new TransferToEDTQueue<Runnable>("Add New Bug Instance", new RunnableProcessor(), new Condition<Object>() {
+		_newBugInstanceQueue = new NewBugInstanceQueue(project, new Condition<Object>() {
 			@Override
 			public boolean value(Object o) {
 				return project.isDisposed() || _cancellingByUser.get() || _indicator.isCanceled();
 			}
-		}, 500);
+		});
 	}
 
 
@@ -112,36 +106,33 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 	}
 
 
+	/**
+	 * All bugs are added to the (unfiltered) bug collection but only bugs accepted by
+	 * the {@link ResultFilter} are shown.
+	 */
 	@Override
 	protected void doReportBug(@NotNull final BugInstance bug) {
 		_bugCollection.add(bug);
 
-		if (isHiddenBugGroup(bug)) {
+		if (!_resultFilter.accepts(bug)) {
 			return;
 		}
 		_filteredBugCount++;
 		observeClass(bug.getPrimaryClass().getClassDescriptor());
-
-		/**
-		 * Guarantee thread visibility *one* time.
-		 */
-		final AtomicReference<BugInstance> bugRef = New.atomicRef(bug);
-		final AtomicReference<ProjectStats> projectStatsRef = New.atomicRef(getProjectStats());
-		_transferToEDTQueue.offer(new Runnable() {
-			/**
-			 * Invoked by EDT.
-			 */
-			@Override
-			public void run() {
-				MessageBusManager.publishNewBugInstance(_project, bugRef.get(), projectStatsRef.get());
-			}
-		});
+		_newBugInstanceQueue.offer(bug, getProjectStats());
 	}
 
 
-	private boolean isHiddenBugGroup(final BugInstance bug) {
-		final String category = bug.getBugPattern().getCategory();
-		return _bugCategories.containsKey(category) && "false".equals(_bugCategories.get(category));
+	/**
+	 * Report bugs of unchanged classes (see {@link AnalysisResultCache}) or of detectors which
+	 * are not run again (see {@link DetectorDelta}). Like the bugs of the current analysis, these bugs are unfiltered.
+	 *
+	 * @param bugs ..
+	 */
+	void reportCachedBugs(@NotNull final Collection<BugInstance> bugs) {
+		for (final BugInstance bug : bugs) {
+			doReportBug((BugInstance) bug.clone());
+		}
 	}
 
 
@@ -197,7 +188,7 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 		EventDispatchThreadHelper.invokeAndWait(new EventDispatchThreadHelper.OperationAdapter() {
 			@Override
 			public void run() {
-				_transferToEDTQueue.drain();
+				_newBugInstanceQueue.drain();
 			}
 		});
 		_indicator.setText("Finished: Found " + _filteredBugCount + " bugs.");
@@ -306,15 +297,6 @@ final class Reporter extends AbstractBugReporter implements FindBugsProgress {
 	}
 
 
-	private static class RunnableProcessor implements Processor<Runnable> {
-		@Override
-		public boolean process(Runnable runnable) {
-			runnable.run();
-			return true;
-		}
-	}
-
-
 	private static final Comparator<Error> QUEUED_ERRORS_COMPARATOR = new Comparator<Error>() {
 		@Override
 		public int compare(final Error o1, final Error o2) {
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.core;
+
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.ExcludingHashesBugReporter;
+import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.config.ProjectFilterSettings;
+import edu.umd.cs.findbugs.filter.Filter;
+import org.dom4j.DocumentException;
+import org.jetbrains.annotations.NotNull;
+import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
+import org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+
+/**
+ * Applies the reporting preferences (min priority and bug categories), the include and exclude
+ * filter files and the baseline bug files to an analysis result.
+ * <p>
+ * The analysis itself runs unfiltered (see {@link FindBugsStarter}), so changed filter settings
+ * are applied to the result of the last run without re-analysis, see {@link #filter(SortedBugCollection)}.
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+public final class ResultFilter {
+
+	private static final Logger LOGGER = Logger.getInstance(ResultFilter.class.getName());
+
+	private final ProjectFilterSettings _filterSettings;
+	private final List<Filter> _includeFilters;
+	private final List<Filter> _excludeFilters;
+	private final Set<String> _excludedHashes;
+
+
+	private ResultFilter(@NotNull final ProjectFilterSettings filterSettings) {
+		_filterSettings = filterSettings;
+		_includeFilters = New.arrayList();
+		_excludeFilters = New.arrayList();
+		_excludedHashes = New.set();
+	}
+
+
+	/**
+	 * Filter files are read immediately; files which can not be read are logged and ignored.
+	 *
+	 * @param project     ..
+	 * @param preferences ..
+	 * @return the filter of the current settings
+	 */
+	@NotNull
+	public static ResultFilter create(@NotNull final Project project, @NotNull final FindBugsPreferences preferences) {
+		final ProjectFilterSettings filterSettings = ProjectFilterSettings.createDefault();
+		filterSettings.setMinPriority(preferences.getProperty(FindBugsPreferences.MIN_PRIORITY_TO_REPORT));
+		for (final Map.Entry<String, String> category : preferences.getBugCategories().entrySet()) {
+			if ("true".equals(category.getValue())) {
+				filterSettings.addCategory(category.getKey());
+			} else {
+				filterSettings.removeCategory(category.getKey());
+			}
+		}
+		final ResultFilter ret = new ResultFilter(filterSettings);
+
+		for (final String includeFile : preferences.getIncludeFiltersMap().keySet()) {
+			try {
+				ret._includeFilters.add(new Filter(IdeaUtilImpl.expandPathMacro(project, includeFile)));
+			} catch (final IOException e) {
+				LOGGER.error("IncludeFilter configuration failed.", e);
+			}
+		}
+		for (final String excludeFile : preferences.getExcludeFiltersMap().keySet()) {
+			try {
+				ret._excludeFilters.add(new Filter(IdeaUtilImpl.expandPathMacro(project, excludeFile)));
+			} catch (final IOException e) {
+				LOGGER.error("ExcludeFilter configuration failed.", e);
+			}
+		}
+		for (final String baselineFile : preferences.getExcludeBaselineBugsMap().keySet()) {
+			try {
+				ExcludingHashesBugReporter.addToExcludedInstanceHashes(ret._excludedHashes, IdeaUtilImpl.expandPathMacro(project, baselineFile));
+			} catch (final IOException e) {
+				LOGGER.error("ExcludeBaseLineBug files configuration failed.", e);
+			} catch (final DocumentException e) {
+				LOGGER.error("ExcludeBaseLineBug files configuration failed.", e);
+			}
+		}
+		return ret;
+	}
+
+
+	/**
+	 * Changes if any setting used by {@link #create(Project, FindBugsPreferences)} or the content
+	 * of a filter file changed.
+	 *
+	 * @param project     ..
+	 * @param preferences ..
+	 * @return a key of the current settings
+	 */
+	@NotNull
+	public static String getSettingsKey(@NotNull final Project project, @NotNull final FindBugsPreferences preferences) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("minPriority=").append(preferences.getProperty(FindBugsPreferences.MIN_PRIORITY_TO_REPORT));
+		sb.append("|categories=").append(new TreeMap<String, String>(preferences.getBugCategories()));
+		sb.append("|include=");
+		AnalysisResultCache.appendFiles(sb, project, preferences.getIncludeFiltersMap().keySet());
+		sb.append("|exclude=");
+		AnalysisResultCache.appendFiles(sb, project, preferences.getExcludeFiltersMap().keySet());
+		sb.append("|baseline=");
+		AnalysisResultCache.appendFiles(sb, project, preferences.getExcludeBaselineBugsMap().keySet());
+		return sb.toString();
+	}
+
+
+	/**
+	 * Same semantic as the filters of the FindBugs engine: a bug must match all include filters
+	 * and none of the exclude filters.
+	 *
+	 * @param bug ..
+	 * @return true if {@code bug} should be shown
+	 */
+	public boolean accepts(@NotNull final BugInstance bug) {
+		if (!_filterSettings.displayWarning(bug)) {
+			return false;
+		}
+		for (final Filter filter : _includeFilters) {
+			if (!filter.match(bug)) {
+				return false;
+			}
+		}
+		for (final Filter filter : _excludeFilters) {
+			if (filter.match(bug)) {
+				return false;
+			}
+		}
+		return _excludedHashes.isEmpty() || !_excludedHashes.contains(bug.getInstanceHash());
+	}
+
+
+	/**
+	 * @param bugCollection unfiltered analysis result
+	 * @return a new collection with the same metadata which contains the accepted bugs only
+	 */
+	@NotNull
+	public SortedBugCollection filter(@NotNull final SortedBugCollection bugCollection) {
+		final SortedBugCollection ret = bugCollection.createEmptyCollectionWithMetadata();
+		for (final BugInstance bug : bugCollection.getCollection()) {
+			if (accepts(bug)) {
+				ret.add(bug, false);
+			}
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.core;
+
+
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.util.ProgressIndicatorBase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Aggregates the progress of parallel shards (see {@link AnalysisShards}) into one indicator.
+ * <p>
+ * Each shard reports to its own {@link #getIndicator(int) sub indicator}. The parent indicator
+ * shows the average fraction of all shards and the text of the first shard which is still running,
+ * so the text does not jump between the shards. Cancellation is shared with the parent indicator.
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+final class ShardProgress {
+
+	private final ProgressIndicator _parent;
+	private final List<ShardIndicator> _indicators;
+
+
+	ShardProgress(@NotNull final ProgressIndicator parent, final int shardCount) {
+		_parent = parent;
+		_indicators = new ArrayList<ShardIndicator>(shardCount);
+		for (int i = 0; i < shardCount; i++) {
+			_indicators.add(new ShardIndicator(i));
+		}
+	}
+
+
+	@NotNull
+	ProgressIndicator getIndicator(final int shard) {
+		return _indicators.get(shard);
+	}
+
+
+	/**
+	 * Invoked by the shard thread when its analysis has ended.
+	 */
+	void shardFinished(final int shard) {
+		synchronized (this) {
+			_indicators.get(shard)._finished = true;
+		}
+		update();
+	}
+
+
+	private void update() {
+		ShardIndicator current = null;
+		double fraction = 0;
+		synchronized (this) {
+			for (final ShardIndicator indicator : _indicators) {
+				fraction += indicator._finished ? 1 : indicator.getFraction();
+				if (current == null && !indicator._finished) {
+					current = indicator;
+				}
+			}
+		}
+		if (current != null) {
+			final String text = current.getText();
+			if (text != null) {
+				_parent.setText("Shard " + (current._shard + 1) + "/" + _indicators.size() + ": " + text);
+			}
+			_parent.setText2(current.getText2());
+		}
+		if (!_parent.isIndeterminate()) {
+			_parent.setFraction(fraction / _indicators.size());
+		}
+	}
+
+
+	private final class ShardIndicator extends ProgressIndicatorBase {
+		private final int _shard;
+		private volatile boolean _finished;
+
+
+		ShardIndicator(final int shard) {
+			_shard = shard;
+		}
+
+
+		@Override
+		public void setText(final String text) {
+			super.setText(text);
+			update();
+		}
+
+
+		@Override
+		public void setText2(final String text) {
+			super.setText2(text);
+			update();
+		}
+
+
+		@Override
+		public void setFraction(final double fraction) {
+			super.setFraction(fraction);
+			update();
+		}
+
+
+		@Override
+		public boolean isCanceled() {
+			return super.isCanceled() || _parent.isCanceled();
+		}
+
+
+		@Override
+		public void cancel() {
+			super.cancel();
+			_parent.cancel();
+		}
+	}
+}
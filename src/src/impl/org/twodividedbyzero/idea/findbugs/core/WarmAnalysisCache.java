@@ -0,0 +1,292 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.core;
+
+
+import com.intellij.ProjectTopics;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootAdapter;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.util.text.StringUtil;
+import edu.umd.cs.findbugs.FindBugs2;
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
+import edu.umd.cs.findbugs.classfile.ResourceNotFoundException;
+import edu.umd.cs.findbugs.classfile.analysis.ClassData;
+import edu.umd.cs.findbugs.classfile.engine.ClassDataAnalysisEngine;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
+import org.twodividedbyzero.idea.findbugs.preferences.FindBugsPreferences;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * Per project in-memory cache of the class data read from aux classpath archives, which survives
+ * between analysis runs. {@link FindBugs2} disposes its class path and analysis cache after each run,
+ * so without this every run reads and inflates the same library classes again.
+ * <p>
+ * Only archives are cached; an archive is re-validated (length and last modified) once per run.
+ * The whole cache is dropped when the module roots or the enabled plugins change; the cached
+ * class bytes do not depend on the enabled detectors. The least recently used archives are evicted when the footprint exceeds
+ * {@code -Didea.findbugs.warmcache.maxmb=N} (default 64, {@code 0} disables the cache).
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+final class WarmAnalysisCache {
+
+	private static final Logger LOGGER = Logger.getInstance(WarmAnalysisCache.class.getName());
+
+	private static final int DEFAULT_MAX_MB = 64;
+	private static final long MAX_BYTES = Math.max(0, StringUtil.parseInt(System.getProperty("idea.findbugs.warmcache.maxmb", String.valueOf(DEFAULT_MAX_MB)), DEFAULT_MAX_MB)) * 1024L * 1024L;
+	private static final Map<Project, WarmAnalysisCache> CACHE_BY_PROJECT = New.weakHashMap();
+
+	private final LinkedHashMap<String, Archive> _archives;
+	private String _configurationKey;
+	private int _run;
+	private long _footprint;
+	private int _classCount;
+
+
+	private WarmAnalysisCache() {
+		_archives = new LinkedHashMap<String, Archive>(16, 0.75f, true);
+	}
+
+
+	/**
+	 * @param project ..
+	 * @return null if the cache is disabled
+	 */
+	@Nullable
+	static WarmAnalysisCache getInstance(@NotNull final Project project) {
+		if (MAX_BYTES == 0) {
+			return null;
+		}
+		synchronized (CACHE_BY_PROJECT) {
+			WarmAnalysisCache ret = CACHE_BY_PROJECT.get(project);
+			if (ret == null) {
+				final WarmAnalysisCache cache = new WarmAnalysisCache();
+				project.getMessageBus().connect(project).subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootAdapter() {
+					@Override
+					public void rootsChanged(final ModuleRootEvent event) {
+						cache.invalidate();
+					}
+				});
+				ret = cache;
+				CACHE_BY_PROJECT.put(project, ret);
+			}
+			return ret;
+		}
+	}
+
+
+	/**
+	 * Must be called once before each analysis run.
+	 *
+	 * @param configurationKey see {@link #configurationKey(FindBugsPreferences)}
+	 */
+	synchronized void startRun(@NotNull final String configurationKey) {
+		if (!configurationKey.equals(_configurationKey)) {
+			clear();
+			_configurationKey = configurationKey;
+		}
+		_run++;
+	}
+
+
+	synchronized void invalidate() {
+		clear();
+		_configurationKey = null;
+	}
+
+
+	/**
+	 * @return a new engine which uses this cache for classes of aux classpath archives
+	 */
+	@NotNull
+	FindBugs2 createEngine() {
+		final ClassDataAnalysisEngine classDataEngine = new WarmClassDataAnalysisEngine();
+		return new FindBugs2() {
+			@Override
+			protected IAnalysisCache createAnalysisCache() throws IOException {
+				final IAnalysisCache ret = super.createAnalysisCache();
+				// replaces the built-in engine
+				classDataEngine.registerWith(ret);
+				return ret;
+			}
+		};
+	}
+
+
+	synchronized void logFootprint() {
+		LOGGER.info("Warm analysis cache: " + _archives.size() + " archives, " + _classCount + " classes, " + (_footprint / 1024) + " KB (max " + (MAX_BYTES / 1024) + " KB)");
+	}
+
+
+	@Nullable
+	private synchronized byte[] get(@NotNull final String archivePath, @NotNull final String resourceName) {
+		final Archive archive = _archives.get(archivePath);
+		if (archive == null) {
+			return null;
+		}
+		if (archive._verifiedRun != _run) {
+			final File file = new File(archivePath);
+			if (file.length() != archive._length || file.lastModified() != archive._lastModified) {
+				remove(archivePath);
+				return null;
+			}
+			archive._verifiedRun = _run;
+		}
+		return archive._classes.get(resourceName);
+	}
+
+
+	private synchronized void put(@NotNull final String archivePath, @NotNull final String resourceName, @NotNull final byte[] data) {
+		if (data.length > MAX_BYTES) {
+			return;
+		}
+		Archive archive = _archives.get(archivePath);
+		if (archive == null) {
+			final File file = new File(archivePath);
+			archive = new Archive(file.length(), file.lastModified(), _run);
+			_archives.put(archivePath, archive);
+		}
+		final byte[] previous = archive._classes.put(resourceName, data);
+		if (previous != null) {
+			archive._footprint -= previous.length;
+			_footprint -= previous.length;
+			_classCount--;
+		}
+		archive._footprint += data.length;
+		_footprint += data.length;
+		_classCount++;
+
+		// do not use get() while iterating, it changes the access order
+		final Iterator<Archive> eldest = _archives.values().iterator();
+		while (_footprint > MAX_BYTES && eldest.hasNext()) {
+			final Archive evicted = eldest.next();
+			eldest.remove();
+			_footprint -= evicted._footprint;
+			_classCount -= evicted._classes.size();
+		}
+	}
+
+
+	private void remove(@NotNull final String archivePath) {
+		final Archive archive = _archives.remove(archivePath);
+		if (archive != null) {
+			_footprint -= archive._footprint;
+			_classCount -= archive._classes.size();
+		}
+	}
+
+
+	private void clear() {
+		_archives.clear();
+		_footprint = 0;
+		_classCount = 0;
+	}
+
+
+	/**
+	 * @return archive path or null if {@code codeBase} is part of the application or not a plain archive
+	 */
+	@Nullable
+	private static String getArchivePath(@NotNull final ICodeBase codeBase) {
+		if (codeBase.isApplicationCodeBase()) {
+			return null;
+		}
+		final String ret = codeBase.getPathName();
+		if (ret == null || !new File(ret).isFile()) {
+			return null;
+		}
+		return ret;
+	}
+
+
+	@NotNull
+	static String configurationKey(@NotNull final FindBugsPreferences preferences) {
+		final Set<String> plugins = new TreeSet<String>();
+		for (final Plugin plugin : Plugin.getAllPlugins()) {
+			if (!preferences.isPluginDisabled(plugin.getPluginId())) {
+				plugins.add(plugin.getPluginId() + ':' + plugin.getVersion());
+			}
+		}
+		return "plugins=" + plugins;
+	}
+
+
+	private static final class Archive {
+		private final long _length;
+		private final long _lastModified;
+		private final Map<String, byte[]> _classes;
+		private long _footprint;
+		private int _verifiedRun;
+
+
+		private Archive(final long length, final long lastModified, final int verifiedRun) {
+			_length = length;
+			_lastModified = lastModified;
+			_verifiedRun = verifiedRun;
+			_classes = New.map();
+		}
+	}
+
+
+	/**
+	 * The class data is bound to the code base entry of the current run,
+	 * only the bytes are taken from the cache.
+	 */
+	private final class WarmClassDataAnalysisEngine extends ClassDataAnalysisEngine {
+
+		@Override
+		public ClassData analyze(final IAnalysisCache analysisCache, final ClassDescriptor descriptor) throws CheckedAnalysisException {
+			final ICodeBaseEntry entry;
+			try {
+				entry = analysisCache.getClassPath().lookupResource(descriptor.toResourceName());
+			} catch (final ResourceNotFoundException ignored) {
+				return super.analyze(analysisCache, descriptor);
+			}
+			final String archivePath = getArchivePath(entry.getCodeBase());
+			if (archivePath == null) {
+				return super.analyze(analysisCache, descriptor);
+			}
+			final byte[] data = get(archivePath, entry.getResourceName());
+			if (data != null) {
+				return new ClassData(descriptor, entry, data);
+			}
+			final ClassData ret = super.analyze(analysisCache, descriptor);
+			put(archivePath, entry.getResourceName(), ret.getData());
+			return ret;
+		}
+	}
+}
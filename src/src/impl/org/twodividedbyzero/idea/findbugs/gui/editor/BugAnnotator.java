@@ -25,6 +25,7 @@ import com.intellij.openapi.editor.markup.EffectType;
 import com.intellij.openapi.editor.markup.TextAttributes;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiAnonymousClass;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
@@ -33,6 +34,7 @@ import com.intellij.ui.JBColor;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.Detector;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.common.ExtendedProblemDescriptor;
 import org.twodividedbyzero.idea.findbugs.common.util.BugInstanceUtil;
 import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
@@ -46,7 +48,7 @@ import org.twodividedbyzero.idea.findbugs.intentions.SuppressReportBugIntentionA
 import org.twodividedbyzero.idea.findbugs.resources.ResourcesLoader;
 
 import java.awt.Font;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -73,30 +75,37 @@ public final class BugAnnotator implements Annotator {
 			return;
 		}
 		if (!FindBugsState.get(project).isIdle()) {
+			HighlightingUpdater.highlightedWhileBusy(project, psiElement.getContainingFile());
 			return;
 		}
-		final Map<PsiFile, List<ExtendedProblemDescriptor>> problems = plugin.getProblems();
+		final Map<VirtualFile, List<ExtendedProblemDescriptor>> problems = plugin.getProblems();
 
 		final PsiFile psiFile = psiElement.getContainingFile();
-		if (problems.containsKey(psiFile)) {
-			addAnnotation(psiElement, new ArrayList<ExtendedProblemDescriptor>(problems.get(psiFile)), annotationHolder);
+		if (psiFile == null || psiFile.getVirtualFile() == null) {
+			return;
+		}
+		final List<ExtendedProblemDescriptor> fileProblems = problems.get(psiFile.getVirtualFile());
+		if (fileProblems == null) {
+			return;
+		}
+		final ProblemIndex index = ProblemIndex.get(psiFile, fileProblems);
+		addAnnotations(index.getProblems(psiElement), psiElement, annotationHolder);
+		if (index.isInAnonymousClass(psiElement.getTextOffset())) {
+			final PsiAnonymousClass psiAnonymousClass = PsiTreeUtil.getParentOfType(psiElement, PsiAnonymousClass.class);
+			if (psiAnonymousClass != null) {
+				addAnnotations(index.getProblems(psiAnonymousClass), psiAnonymousClass, annotationHolder);
+			}
 		}
 	}
 
 
-	private static void addAnnotation(@NotNull final PsiElement psiElement, final Iterable<ExtendedProblemDescriptor> problemDescriptors, @NotNull final AnnotationHolder annotationHolder) {
-		final List<ExtendedProblemDescriptor> matchingDescriptors = new ArrayList<ExtendedProblemDescriptor>();
-		for (final ExtendedProblemDescriptor descriptor : problemDescriptors) {
-			final PsiElement problemPsiElement = descriptor.getPsiElement();
-
-			final PsiAnonymousClass psiAnonymousClass = PsiTreeUtil.getParentOfType(psiElement, PsiAnonymousClass.class);
-			if (psiElement.equals(problemPsiElement)) {
-				matchingDescriptors.add(descriptor);
-				addAnnotation(descriptor, matchingDescriptors, psiElement, annotationHolder);
-			} else if (psiAnonymousClass != null && psiAnonymousClass.equals(problemPsiElement)) {
-				matchingDescriptors.add(descriptor);
-				addAnnotation(descriptor, matchingDescriptors, psiAnonymousClass, annotationHolder);
-			}
+	private static void addAnnotations(@Nullable final ExtendedProblemDescriptor[] problemDescriptors, @NotNull final PsiElement psiElement, @NotNull final AnnotationHolder annotationHolder) {
+		if (problemDescriptors == null) {
+			return;
+		}
+		final List<ExtendedProblemDescriptor> matchingDescriptors = Arrays.asList(problemDescriptors);
+		for (int i = 0; i < problemDescriptors.length; i++) {
+			addAnnotation(problemDescriptors[i], matchingDescriptors.subList(0, i + 1), psiElement, annotationHolder);
 		}
 	}
 
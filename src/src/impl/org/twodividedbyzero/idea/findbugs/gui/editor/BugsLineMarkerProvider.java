@@ -22,10 +22,12 @@ package org.twodividedbyzero.idea.findbugs.gui.editor;
 import com.intellij.codeInsight.daemon.GutterIconNavigationHandler;
 import com.intellij.codeInsight.daemon.LineMarkerInfo;
 import com.intellij.codeInsight.daemon.LineMarkerProvider;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.markup.GutterIconRenderer;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.popup.JBPopup;
 import com.intellij.openapi.ui.popup.JBPopupFactory;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.ui.awt.RelativePoint;
@@ -47,7 +49,9 @@ import org.twodividedbyzero.idea.findbugs.intentions.SuppressReportBugIntentionA
 
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -62,85 +66,108 @@ import java.util.regex.Pattern;
  */
 public final class BugsLineMarkerProvider implements LineMarkerProvider {
 
+	private static final Logger LOGGER = Logger.getInstance(BugsLineMarkerProvider.class.getName());
+
+	/**
+	 * Stateless, the problems of the marked element are looked up on demand.
+	 */
+	private static final GutterIconNavigationHandler<PsiElement> NAVIGATION_HANDLER = new BugGutterIconNavigationHandler();
+	private static final Function<PsiElement, String> TOOLTIP_PROVIDER = new TooltipProvider();
+
+
 	public BugsLineMarkerProvider() {
 	}
 
 
+	/**
+	 * All markers are computed in one pass per file by {@link #collectSlowLineMarkers(List, Collection)}.
+	 */
 	@Override
 	@Nullable
 	public LineMarkerInfo<?> getLineMarkerInfo(@NotNull final PsiElement psiElement) {
-		final Project project = psiElement.getProject();
+		return null;
+	}
 
+
+	@Override
+	public void collectSlowLineMarkers(@NotNull final List<PsiElement> elements, @NotNull final Collection<LineMarkerInfo> result) {
+		if (elements.isEmpty()) {
+			return;
+		}
+		final Project project = elements.get(0).getProject();
 		final FindBugsPlugin pluginComponent = IdeaUtilImpl.getPluginComponent(project);
-		if (! pluginComponent.getPreferences().isAnnotationGutterIconEnabled()) {
-			return null;
+		if (!pluginComponent.getPreferences().isAnnotationGutterIconEnabled()) {
+			return;
 		}
-		if(!FindBugsState.get(project).isIdle()) {
-			return null;
+		if (!FindBugsState.get(project).isIdle()) {
+			HighlightingUpdater.highlightedWhileBusy(project, elements.get(0).getContainingFile());
+			return;
+		}
+		final Map<VirtualFile, List<ExtendedProblemDescriptor>> problemCache = pluginComponent.getProblems();
+		if (problemCache.isEmpty()) {
+			return;
 		}
 
-		final PsiFile psiFile = IdeaUtilImpl.getPsiFile(psiElement);
-		final Map<PsiFile, List<ExtendedProblemDescriptor>> problemCache = pluginComponent.getProblems();
-
-		if (problemCache.containsKey(psiFile)) {
-			final List<ExtendedProblemDescriptor> matchingDescriptors = new ArrayList<ExtendedProblemDescriptor>();
-			final List<ExtendedProblemDescriptor> problemDescriptors = problemCache.get(psiFile);
-			if (problemDescriptors == null) {
-				return null;
+		final long start = System.currentTimeMillis();
+		PsiFile psiFile = null;
+		ProblemIndex index = null;
+		int markerCount = 0;
+		for (final PsiElement psiElement : elements) {
+			final PsiFile elementFile = psiElement.getContainingFile();
+			if (elementFile != psiFile) {
+				// usually all elements belong to the same file
+				psiFile = elementFile;
+				final List<ExtendedProblemDescriptor> problemDescriptors = psiFile == null || psiFile.getVirtualFile() == null ? null : problemCache.get(psiFile.getVirtualFile());
+				index = problemDescriptors == null ? null : ProblemIndex.get(psiFile, problemDescriptors);
 			}
-
-			final Iterable<ExtendedProblemDescriptor> descriptors = new ArrayList<ExtendedProblemDescriptor>(problemDescriptors);
-			for (final ExtendedProblemDescriptor problemDescriptor : descriptors) {
-
-				final PsiElement problemPsiElement = problemDescriptor.getPsiElement();
-				if (psiElement.equals(problemPsiElement)) {
-					matchingDescriptors.add(problemDescriptor);
-					//if(psiElement instanceof PsiAnonymousClass) {
-					//	final Editor[] editors = com.intellij.openapi.editor.EditorFactory.getInstance().getEditors(IdeaUtilImpl.getDocument(psiFile.getProject(), problemDescriptor));
-					//	editors[0].getMarkupModel().addRangeHighlighter()
-					//}
-				}
+			if (index == null) {
+				continue;
 			}
-			if (!matchingDescriptors.isEmpty()) {
-				final GutterIconNavigationHandler<PsiElement> navHandler = new BugGutterIconNavigationHandler(psiElement, matchingDescriptors);
-				return new LineMarkerInfo<PsiElement>(psiElement, psiElement.getTextRange().getStartOffset(), GuiUtil.getTinyIcon(matchingDescriptors.get(0)), 4, new TooltipProvider(matchingDescriptors), navHandler, GutterIconRenderer.Alignment.LEFT);
+			final ExtendedProblemDescriptor[] matchingDescriptors = index.getProblems(psiElement);
+			if (matchingDescriptors != null) {
+				result.add(new LineMarkerInfo<PsiElement>(psiElement, psiElement.getTextRange().getStartOffset(), GuiUtil.getTinyIcon(matchingDescriptors[0]), 4, TOOLTIP_PROVIDER, NAVIGATION_HANDLER, GutterIconRenderer.Alignment.LEFT));
+				markerCount++;
 			}
 		}
-
-		return null;
+		if (markerCount > 0 && LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Collected " + markerCount + " gutter marker(s) for " + elements.size() + " element(s) in " + (System.currentTimeMillis() - start) + " ms");
+		}
 	}
 
 
-	public void collectSlowLineMarkers(@NotNull final List<PsiElement> elements, @NotNull final Collection<LineMarkerInfo> result) {
+	@NotNull
+	private static List<ExtendedProblemDescriptor> getProblems(@NotNull final PsiElement psiElement) {
+		final PsiFile psiFile = psiElement.getContainingFile();
+		if (psiFile == null || psiFile.getVirtualFile() == null) {
+			return Collections.emptyList();
+		}
+		final List<ExtendedProblemDescriptor> problemDescriptors = IdeaUtilImpl.getPluginComponent(psiElement.getProject()).getProblems().get(psiFile.getVirtualFile());
+		if (problemDescriptors == null) {
+			return Collections.emptyList();
+		}
+		final ExtendedProblemDescriptor[] ret = ProblemIndex.get(psiFile, problemDescriptors).getProblems(psiElement);
+		if (ret == null) {
+			return Collections.emptyList();
+		}
+		return Arrays.asList(ret);
 	}
 
 
 	private static class BugGutterIconNavigationHandler implements GutterIconNavigationHandler<PsiElement> {
 
-		private final List<ExtendedProblemDescriptor> _descriptors;
-		private final PsiElement _psiElement;
-
-
-		private BugGutterIconNavigationHandler(final PsiElement psiElement, final List<ExtendedProblemDescriptor> descriptors) {
-			_descriptors = descriptors;
-			_psiElement = psiElement;
-			//buildPopupMenu();
-		}
-
-
 		@SuppressWarnings({"AnonymousInnerClass", "AnonymousInnerClassMayBeStatic"})
-		private JBPopup buildPopupMenu() {
+		private static JBPopup buildPopupMenu(final PsiElement psiElement, final List<ExtendedProblemDescriptor> descriptors) {
 			final List<GroupBugIntentionListPopupStep> intentionGroups = new ArrayList<GroupBugIntentionListPopupStep>();
 
-			for (final ExtendedProblemDescriptor problemDescriptor : _descriptors) {
-				final List<SuppressReportBugIntentionAction> intentionActions = new ArrayList<SuppressReportBugIntentionAction>(_descriptors.size());
+			for (final ExtendedProblemDescriptor problemDescriptor : descriptors) {
+				final List<SuppressReportBugIntentionAction> intentionActions = new ArrayList<SuppressReportBugIntentionAction>(descriptors.size());
 
 				intentionActions.add(new SuppressReportBugIntentionAction(problemDescriptor));
 				intentionActions.add(new SuppressReportBugForClassIntentionAction(problemDescriptor));
 				intentionActions.add(new ClearBugIntentionAction(problemDescriptor));
 				intentionActions.add(new ClearAndSuppressBugIntentionAction(problemDescriptor));
 
-				final GroupBugIntentionListPopupStep intentionActionGroup = new GroupBugIntentionListPopupStep(_psiElement, intentionActions);
+				final GroupBugIntentionListPopupStep intentionActionGroup = new GroupBugIntentionListPopupStep(psiElement, intentionActions);
 				intentionGroups.add(intentionActionGroup);
 			}
 
@@ -164,14 +191,13 @@ public final class BugsLineMarkerProvider implements LineMarkerProvider {
 
 		@Override
 		public void navigate(final MouseEvent e, final PsiElement psiElement) {
-			final FindBugsPlugin plugin = IdeaUtilImpl.getPluginComponent(psiElement.getProject());
-			for (final ExtendedProblemDescriptor descriptor : _descriptors) {
-				if (descriptor.getPsiElement() == psiElement) {
-					plugin.getToolWindowPanel().getBugTreePanel().getBugTree().gotoNode(descriptor.getBugInstance());
-					break;
-				}
+			final List<ExtendedProblemDescriptor> descriptors = getProblems(psiElement);
+			if (descriptors.isEmpty()) {
+				return;
 			}
-			buildPopupMenu().show(new RelativePoint(e));
+			final FindBugsPlugin plugin = IdeaUtilImpl.getPluginComponent(psiElement.getProject());
+			plugin.getToolWindowPanel().getBugTreePanel().getBugTree().gotoNode(descriptors.get(0).getBugInstance());
+			buildPopupMenu(psiElement, descriptors).show(new RelativePoint(e));
 		}
 
 
@@ -179,18 +205,16 @@ public final class BugsLineMarkerProvider implements LineMarkerProvider {
 
 	private static class TooltipProvider implements Function<PsiElement, String> {
 
-		private final List<ExtendedProblemDescriptor> _problemDescriptors;
 		@SuppressWarnings("HardcodedLineSeparator")
 		private static final Pattern PATTERN = Pattern.compile("\n");
 
 
-		private TooltipProvider(final List<ExtendedProblemDescriptor> problemDescriptors) {
-			_problemDescriptors = problemDescriptors;
-		}
-
-
 		public String fun(final PsiElement psiElement) {
-			return getTooltipText(_problemDescriptors);
+			final List<ExtendedProblemDescriptor> problemDescriptors = getProblems(psiElement);
+			if (problemDescriptors.isEmpty()) {
+				return null;
+			}
+			return getTooltipText(problemDescriptors);
 		}
 
 
@@ -218,11 +242,6 @@ public final class BugsLineMarkerProvider implements LineMarkerProvider {
 			return buffer.toString();
 		}
 
-
-		@Override
-		public String toString() {
-			return "TooltipProvider" + "{_problemDescriptor=" + _problemDescriptors + '}';
-		}
 	}
 
 }
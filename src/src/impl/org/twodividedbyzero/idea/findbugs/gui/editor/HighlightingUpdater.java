@@ -0,0 +1,167 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.gui.editor;
+
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.twodividedbyzero.idea.findbugs.common.EventDispatchThreadHelper;
+import org.twodividedbyzero.idea.findbugs.common.ExtendedProblemDescriptor;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Restarts the highlighting of only those files whose findings were changed by an analysis run.
+ * <p>
+ * The findings of each file are recorded when the analysis starts ({@link #analysisStarted(Project, Map)})
+ * and compared with the new findings when it has finished or was aborted ({@link #analysisEnded(Project, Map)}).
+ * Files which were highlighted while the analysis was running are restarted too, because
+ * {@link BugAnnotator} and {@link BugsLineMarkerProvider} do not report findings during an analysis.
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+public final class HighlightingUpdater {
+
+	private static final Logger LOGGER = Logger.getInstance(HighlightingUpdater.class.getName());
+	private static final Map<Project, HighlightingUpdater> UPDATER_BY_PROJECT = New.weakHashMap();
+
+	private final Map<VirtualFile, Set<String>> _findings;
+	private final Map<VirtualFile, Boolean> _highlightedWhileBusy;
+
+
+	private HighlightingUpdater(@NotNull final Map<VirtualFile, Set<String>> findings) {
+		_findings = findings;
+		_highlightedWhileBusy = New.concurrentMap();
+	}
+
+
+	/**
+	 * Invoked by EDT.
+	 *
+	 * @param project  ..
+	 * @param problems the problems before the analysis
+	 */
+	public static void analysisStarted(@NotNull final Project project, @NotNull final Map<VirtualFile, List<ExtendedProblemDescriptor>> problems) {
+		EventDispatchThreadHelper.checkEDT();
+		synchronized (UPDATER_BY_PROJECT) {
+			final HighlightingUpdater previous = UPDATER_BY_PROJECT.get(project);
+			if (previous != null) {
+				// previous run did not end (e. g. preempted), keep its findings which are still shown
+				return;
+			}
+			UPDATER_BY_PROJECT.put(project, new HighlightingUpdater(getFindings(problems)));
+		}
+	}
+
+
+	/**
+	 * Invoked by EDT.
+	 *
+	 * @param project  ..
+	 * @param problems the problems after the analysis
+	 */
+	public static void analysisEnded(@NotNull final Project project, @NotNull final Map<VirtualFile, List<ExtendedProblemDescriptor>> problems) {
+		EventDispatchThreadHelper.checkEDT();
+		final HighlightingUpdater updater;
+		synchronized (UPDATER_BY_PROJECT) {
+			updater = UPDATER_BY_PROJECT.remove(project);
+		}
+		if (updater == null) {
+			DaemonCodeAnalyzer.getInstance(project).restart();
+			return;
+		}
+
+		final Map<VirtualFile, Set<String>> findings = getFindings(problems);
+		final Set<VirtualFile> changed = New.set();
+		changed.addAll(updater._highlightedWhileBusy.keySet());
+		for (final Map.Entry<VirtualFile, Set<String>> entry : findings.entrySet()) {
+			if (!entry.getValue().equals(updater._findings.get(entry.getKey()))) {
+				changed.add(entry.getKey());
+			}
+		}
+		for (final VirtualFile file : updater._findings.keySet()) {
+			if (!findings.containsKey(file)) {
+				changed.add(file);
+			}
+		}
+
+		final DaemonCodeAnalyzer daemonCodeAnalyzer = DaemonCodeAnalyzer.getInstance(project);
+		final PsiManager psiManager = PsiManager.getInstance(project);
+		int restarted = 0;
+		for (final VirtualFile file : changed) {
+			final PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+			if (psiFile != null) {
+				daemonCodeAnalyzer.restart(psiFile);
+				restarted++;
+			}
+		}
+		LOGGER.debug("Restarted highlighting of " + restarted + " file(s) with changed findings");
+	}
+
+
+	/**
+	 * Must be invoked by {@link BugAnnotator} and {@link BugsLineMarkerProvider} if they skip
+	 * a file because the analysis is running.
+	 *
+	 * @param project ..
+	 * @param file    ..
+	 */
+	static void highlightedWhileBusy(@NotNull final Project project, @Nullable final PsiFile file) {
+		final VirtualFile virtualFile = file != null ? file.getVirtualFile() : null;
+		if (virtualFile == null) {
+			return;
+		}
+		final HighlightingUpdater updater;
+		synchronized (UPDATER_BY_PROJECT) {
+			updater = UPDATER_BY_PROJECT.get(project);
+		}
+		if (updater != null) {
+			updater._highlightedWhileBusy.put(virtualFile, Boolean.TRUE);
+		}
+	}
+
+
+	@NotNull
+	private static Map<VirtualFile, Set<String>> getFindings(@NotNull final Map<VirtualFile, List<ExtendedProblemDescriptor>> problems) {
+		final Map<VirtualFile, Set<String>> ret = New.map(problems.size());
+		for (final Map.Entry<VirtualFile, List<ExtendedProblemDescriptor>> entry : problems.entrySet()) {
+			final Set<String> findings = New.set();
+			for (final ExtendedProblemDescriptor problem : entry.getValue()) {
+				// everything the editor shows of a finding
+				findings.add(problem.getBugInstance().getInstanceHash() + '|' + problem.getBugInstance().getPriority() + '|' + problem.getLineStart());
+			}
+			if (!findings.isEmpty()) {
+				ret.put(entry.getKey(), Collections.unmodifiableSet(findings));
+			}
+		}
+		return ret;
+	}
+}
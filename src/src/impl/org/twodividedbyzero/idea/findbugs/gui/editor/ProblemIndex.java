@@ -0,0 +1,163 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.gui.editor;
+
+
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiAnonymousClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.twodividedbyzero.idea.findbugs.common.ExtendedProblemDescriptor;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Immutable per file index of the problems of an analysis result: the problems by their
+ * {@link PsiElement} and the text ranges of all anonymous classes with problems.
+ * <p>
+ * The index is attached to the {@link PsiFile} and rebuilt when the problem list of the file
+ * (another list or another size) or the file itself changed. Lookups take no locks and
+ * allocate nothing if there is no problem.
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+final class ProblemIndex {
+
+	private static final Key<ProblemIndex> KEY = Key.create("FindBugs-IDEA.ProblemIndex");
+
+	private final List<ExtendedProblemDescriptor> _source;
+	private final int _sourceSize;
+	private final long _modificationStamp;
+	private final Map<PsiElement, ExtendedProblemDescriptor[]> _problemsByElement;
+	/**
+	 * Anonymous class ranges sorted by start offset.
+	 */
+	private final int[] _anonymousStarts;
+	/**
+	 * Max end offset of all anonymous class ranges up to the same index.
+	 */
+	private final int[] _anonymousMaxEnds;
+
+
+	private ProblemIndex(@NotNull final PsiFile psiFile, @NotNull final List<ExtendedProblemDescriptor> source) {
+		_source = source;
+		_modificationStamp = psiFile.getModificationStamp();
+		final ExtendedProblemDescriptor[] descriptors = source.toArray(new ExtendedProblemDescriptor[source.size()]);
+		_sourceSize = descriptors.length;
+
+		final Map<PsiElement, List<ExtendedProblemDescriptor>> problemsByElement = New.map();
+		final List<TextRange> anonymousRanges = new ArrayList<TextRange>();
+		for (final ExtendedProblemDescriptor descriptor : descriptors) {
+			final PsiElement element = descriptor.getPsiElement();
+			if (element == null) {
+				continue;
+			}
+			List<ExtendedProblemDescriptor> problems = problemsByElement.get(element);
+			if (problems == null) {
+				problems = new ArrayList<ExtendedProblemDescriptor>(1);
+				problemsByElement.put(element, problems);
+				if (element instanceof PsiAnonymousClass) {
+					anonymousRanges.add(element.getTextRange());
+				}
+			}
+			problems.add(descriptor);
+		}
+
+		_problemsByElement = New.map(problemsByElement.size());
+		for (final Map.Entry<PsiElement, List<ExtendedProblemDescriptor>> entry : problemsByElement.entrySet()) {
+			final List<ExtendedProblemDescriptor> problems = entry.getValue();
+			_problemsByElement.put(entry.getKey(), problems.toArray(new ExtendedProblemDescriptor[problems.size()]));
+		}
+
+		final TextRange[] ranges = anonymousRanges.toArray(new TextRange[anonymousRanges.size()]);
+		Arrays.sort(ranges, new Comparator<TextRange>() {
+			@Override
+			public int compare(final TextRange o1, final TextRange o2) {
+				return o1.getStartOffset() - o2.getStartOffset();
+			}
+		});
+		_anonymousStarts = new int[ranges.length];
+		_anonymousMaxEnds = new int[ranges.length];
+		int maxEnd = -1;
+		for (int i = 0; i < ranges.length; i++) {
+			_anonymousStarts[i] = ranges[i].getStartOffset();
+			maxEnd = Math.max(maxEnd, ranges[i].getEndOffset());
+			_anonymousMaxEnds[i] = maxEnd;
+		}
+	}
+
+
+	/**
+	 * Must be called inside a read action.
+	 *
+	 * @param psiFile  ..
+	 * @param problems the current problems of {@code psiFile}
+	 * @return the index, shared until {@code problems} or the file changes
+	 */
+	@NotNull
+	static ProblemIndex get(@NotNull final PsiFile psiFile, @NotNull final List<ExtendedProblemDescriptor> problems) {
+		ProblemIndex ret = psiFile.getUserData(KEY);
+		if (ret == null || ret._source != problems || ret._sourceSize != problems.size() || ret._modificationStamp != psiFile.getModificationStamp()) {
+			ret = new ProblemIndex(psiFile, problems);
+			psiFile.putUserData(KEY, ret);
+		}
+		return ret;
+	}
+
+
+	/**
+	 * @param element ..
+	 * @return the problems reported on {@code element} or null
+	 */
+	@Nullable
+	ExtendedProblemDescriptor[] getProblems(@NotNull final PsiElement element) {
+		return _problemsByElement.get(element);
+	}
+
+
+	/**
+	 * @param offset text offset
+	 * @return true if {@code offset} is inside an anonymous class with problems
+	 */
+	boolean isInAnonymousClass(final int offset) {
+		int low = 0;
+		int high = _anonymousStarts.length - 1;
+		int last = -1; // last range starting at or before offset
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			if (_anonymousStarts[mid] <= offset) {
+				last = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return last >= 0 && _anonymousMaxEnds[last] > offset;
+	}
+}
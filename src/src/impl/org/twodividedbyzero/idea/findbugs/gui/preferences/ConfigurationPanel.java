@@ -89,8 +89,13 @@ public final class ConfigurationPanel extends JPanel {
 	private JCheckBox _compileBeforeAnalyseChkb;
 	private JCheckBox _analyzeAfterCompileChkb;
 	private JCheckBox _analyzeAfterAutoMakeChkb;
+	private JCheckBox _analyzeAfterClassFileChangeChkb;
+	private JCheckBox _pipelineCompileAndAnalyzeChkb;
 	private JCheckBox _runInBackgroundChkb;
+	private JCheckBox _runInParallelChkb;
 	private JCheckBox _toolwindowToFront;
+	private AaComboBox<Integer> _maxDependentsCombobox;
+	private JPanel _maxDependentsPanel;
 
 	private AaComboBox<AnalysisEffort> _effortLevelCombobox;
 	private JPanel _topPanel;
@@ -166,6 +171,7 @@ public final class ConfigurationPanel extends JPanel {
 			final JPanel generalPanel = new JPanel(new VerticalFlowLayout());
 			generalPanel.setBorder(BorderFactory.createTitledBorder("General"));
 			generalPanel.add(getRunInBgCheckbox());
+			generalPanel.add(getRunInParallelCheckbox());
 			generalPanel.add(getToolwindowToFrontCheckbox());
 			_topPanel.add(generalPanel);
 
@@ -173,8 +179,11 @@ public final class ConfigurationPanel extends JPanel {
 			analyzePanel.setBorder(BorderFactory.createTitledBorder("Auto Analyze"));
 			analyzePanel.add(getAnalyzeAfterCompileCheckbox());
 			analyzePanel.add(getAnalyzeAfterAutoMakeCheckbox());
+			analyzePanel.add(getAnalyzeAfterClassFileChangeCheckbox());
 			analyzePanel.add(getCompileBeforeAnalyseCheckbox());
 			analyzePanel.add(getCompileBeforeAnalyseCheckbox());
+			analyzePanel.add(getPipelineCompileAndAnalyzeCheckbox());
+			analyzePanel.add(getMaxDependentsPanel());
 			_topPanel.add(analyzePanel);
 		}
 		return _topPanel;
@@ -184,9 +193,13 @@ public final class ConfigurationPanel extends JPanel {
 	public void updatePreferences() {
 		getEffortSlider().setValue(AnalysisEffort.valueOfLevel(getPreferences().getProperty(FindBugsPreferences.ANALYSIS_EFFORT_LEVEL, AnalysisEffort.DEFAULT.getEffortLevel())).getValue(), false);
 		getRunInBgCheckbox().setSelected(getPreferences().getBooleanProperty(FindBugsPreferences.RUN_ANALYSIS_IN_BACKGROUND, false));
+		getRunInParallelCheckbox().setSelected(getPreferences().getBooleanProperty(FindBugsPreferences.RUN_ANALYSIS_IN_PARALLEL, false));
 		getCompileBeforeAnalyseCheckbox().setSelected(getPreferences().getBooleanProperty(FindBugsPreferences.COMPILE_BEFORE_ANALYZE, true));
 		getAnalyzeAfterCompileCheckbox().setSelected(getPreferences().getBooleanProperty(FindBugsPreferences.ANALYZE_AFTER_COMPILE, false));
 		getAnalyzeAfterAutoMakeCheckbox().setSelected(getPreferences().getBooleanProperty(FindBugsPreferences.ANALYZE_AFTER_AUTOMAKE, false));
+		getAnalyzeAfterClassFileChangeCheckbox().setSelected(getPreferences().getBooleanProperty(FindBugsPreferences.ANALYZE_AFTER_CLASS_FILE_CHANGE, false));
+		getPipelineCompileAndAnalyzeCheckbox().setSelected(getPreferences().getBooleanProperty(FindBugsPreferences.PIPELINE_COMPILE_AND_ANALYZE, false));
+		getMaxDependentsComboBox().setSelectedItem(getPreferences().getIntProperty(FindBugsPreferences.AUTOMAKE_MAX_DEPENDENTS, FindBugsPreferences.DEFAULT_AUTOMAKE_MAX_DEPENDENTS), false);
 		getToolwindowToFrontCheckbox().setSelected(getPreferences().getBooleanProperty(FindBugsPreferences.TOOLWINDOW_TO_FRONT, true));
 		getEffortLevelComboBox().setSelectedItem(AnalysisEffort.valueOfLevel(getPreferences().getProperty(FindBugsPreferences.ANALYSIS_EFFORT_LEVEL, AnalysisEffort.DEFAULT.getEffortLevel())), false);
 		getReporterConfig().updatePreferences();
@@ -219,6 +232,20 @@ public final class ConfigurationPanel extends JPanel {
 	}
 
 
+	private AbstractButton getRunInParallelCheckbox() {
+		if (_runInParallelChkb == null) {
+			_runInParallelChkb = new JCheckBox("Run analysis of large scopes in parallel");
+			_runInParallelChkb.setFocusable(false);
+			_runInParallelChkb.addActionListener(new ActionListener() {
+				public void actionPerformed(final ActionEvent e) {
+					getPreferences().setProperty(FindBugsPreferences.RUN_ANALYSIS_IN_PARALLEL, _runInParallelChkb.isSelected());
+				}
+			});
+		}
+		return _runInParallelChkb;
+	}
+
+
 	@NotNull
 	private AbstractButton getCompileBeforeAnalyseCheckbox() {
 		if (_compileBeforeAnalyseChkb == null) {
@@ -244,6 +271,9 @@ public final class ConfigurationPanel extends JPanel {
 				@Override
 				public void actionPerformed(final ActionEvent e) {
 					getPreferences().setProperty(FindBugsPreferences.ANALYZE_AFTER_COMPILE, _analyzeAfterCompileChkb.isSelected());
+					if (_analyzeAfterCompileChkb.isSelected()) {
+						setAnalyzeAfterClassFileChange(false);
+					}
 				}
 			});
 		}
@@ -258,6 +288,9 @@ public final class ConfigurationPanel extends JPanel {
 			_analyzeAfterAutoMakeChkb.addActionListener(new ActionListener() {
 				public void actionPerformed(final ActionEvent e) {
 					getPreferences().setProperty(FindBugsPreferences.ANALYZE_AFTER_AUTOMAKE, _analyzeAfterAutoMakeChkb.isSelected());
+					if (_analyzeAfterAutoMakeChkb.isSelected()) {
+						setAnalyzeAfterClassFileChange(false);
+					}
 				}
 			});
 		}
@@ -265,6 +298,74 @@ public final class ConfigurationPanel extends JPanel {
 	}
 
 
+	private AbstractButton getAnalyzeAfterClassFileChangeCheckbox() {
+		if (_analyzeAfterClassFileChangeChkb == null) {
+			_analyzeAfterClassFileChangeChkb = new JCheckBox("Analyze changed class files after external build (Gradle, Maven)");
+			_analyzeAfterClassFileChangeChkb.setFocusable(false);
+			_analyzeAfterClassFileChangeChkb.addActionListener(new ActionListener() {
+				public void actionPerformed(final ActionEvent e) {
+					getPreferences().setProperty(FindBugsPreferences.ANALYZE_AFTER_CLASS_FILE_CHANGE, _analyzeAfterClassFileChangeChkb.isSelected());
+					if (_analyzeAfterClassFileChangeChkb.isSelected()) {
+						// class files of IDEA's own make would be analyzed twice
+						getAnalyzeAfterCompileCheckbox().setSelected(false);
+						getPreferences().setProperty(FindBugsPreferences.ANALYZE_AFTER_COMPILE, false);
+						getAnalyzeAfterAutoMakeCheckbox().setSelected(false);
+						getPreferences().setProperty(FindBugsPreferences.ANALYZE_AFTER_AUTOMAKE, false);
+					}
+				}
+			});
+		}
+		return _analyzeAfterClassFileChangeChkb;
+	}
+
+
+	/**
+	 * The class file watcher is exclusive with the analysis after compile and automake.
+	 */
+	private void setAnalyzeAfterClassFileChange(final boolean enabled) {
+		getAnalyzeAfterClassFileChangeCheckbox().setSelected(enabled);
+		getPreferences().setProperty(FindBugsPreferences.ANALYZE_AFTER_CLASS_FILE_CHANGE, enabled);
+	}
+
+
+	private AbstractButton getPipelineCompileAndAnalyzeCheckbox() {
+		if (_pipelineCompileAndAnalyzeChkb == null) {
+			_pipelineCompileAndAnalyzeChkb = new JCheckBox("Analyze each module as soon as it is compiled");
+			_pipelineCompileAndAnalyzeChkb.setFocusable(false);
+			_pipelineCompileAndAnalyzeChkb.addActionListener(new ActionListener() {
+				public void actionPerformed(final ActionEvent e) {
+					getPreferences().setProperty(FindBugsPreferences.PIPELINE_COMPILE_AND_ANALYZE, _pipelineCompileAndAnalyzeChkb.isSelected());
+				}
+			});
+		}
+		return _pipelineCompileAndAnalyzeChkb;
+	}
+
+
+	@NotNull
+	private JPanel getMaxDependentsPanel() {
+		if (_maxDependentsPanel == null) {
+			_maxDependentsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+			_maxDependentsPanel.add(new JLabel("Max. dependent classes analyzed after make, automake or class file changes (0 = none): "));
+			_maxDependentsPanel.add(getMaxDependentsComboBox());
+		}
+		return _maxDependentsPanel;
+	}
+
+
+	private AaComboBox<Integer> getMaxDependentsComboBox() {
+		if (_maxDependentsCombobox == null) {
+			_maxDependentsCombobox = new AaComboBox<Integer>(new Integer[] {0, 50, 100, FindBugsPreferences.DEFAULT_AUTOMAKE_MAX_DEPENDENTS, 500, 1000});
+			_maxDependentsCombobox.addSelectionChangeListener(new ActionListener() {
+				public void actionPerformed(final ActionEvent e) {
+					getPreferences().setProperty(FindBugsPreferences.AUTOMAKE_MAX_DEPENDENTS, (Integer) _maxDependentsCombobox.getSelectedItem());
+				}
+			});
+		}
+		return _maxDependentsCombobox;
+	}
+
+
 	private AbstractButton getToolwindowToFrontCheckbox() {
 		if (_toolwindowToFront == null) {
 			_toolwindowToFront = new JCheckBox("Activate toolwindow on run");
@@ -643,7 +744,11 @@ public final class ConfigurationPanel extends JPanel {
 		getCompileBeforeAnalyseCheckbox().setEnabled(enabled);
 		getAnalyzeAfterCompileCheckbox().setEnabled(enabled);
 		getAnalyzeAfterAutoMakeCheckbox().setEnabled(enabled);
+		getAnalyzeAfterClassFileChangeCheckbox().setEnabled(enabled);
+		getPipelineCompileAndAnalyzeCheckbox().setEnabled(enabled);
+		getMaxDependentsComboBox().setEnabled(enabled);
 		getRunInBgCheckbox().setEnabled(enabled);
+		getRunInParallelCheckbox().setEnabled(enabled);
 		getToolwindowToFrontCheckbox().setEnabled(enabled);
 		final List<ConfigurationPage> configPages = getConfigPages();
 		for (final ConfigurationPage configPage : configPages) {
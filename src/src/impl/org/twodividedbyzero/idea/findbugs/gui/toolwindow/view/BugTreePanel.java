@@ -31,7 +31,11 @@ import com.intellij.openapi.editor.markup.HighlighterLayer;
 import com.intellij.openapi.editor.markup.HighlighterTargetArea;
 import com.intellij.openapi.editor.markup.RangeHighlighter;
 import com.intellij.openapi.editor.markup.TextAttributes;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
@@ -46,8 +50,12 @@ import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.common.EventDispatchThreadHelper;
 import org.twodividedbyzero.idea.findbugs.common.ExtendedProblemDescriptor;
 import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.core.DetectorDelta;
+import org.twodividedbyzero.idea.findbugs.core.ResultFilter;
+import org.twodividedbyzero.idea.findbugs.gui.editor.HighlightingUpdater;
 import org.twodividedbyzero.idea.findbugs.gui.common.ScrollPaneFacade;
 import org.twodividedbyzero.idea.findbugs.gui.tree.GroupBy;
+import org.twodividedbyzero.idea.findbugs.gui.tree.model.BugInstanceGroupNode;
 import org.twodividedbyzero.idea.findbugs.gui.tree.model.BugInstanceNode;
 import org.twodividedbyzero.idea.findbugs.gui.tree.model.GroupTreeModel;
 import org.twodividedbyzero.idea.findbugs.gui.tree.model.RootNode;
@@ -61,8 +69,10 @@ import javax.swing.tree.TreePath;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.Font;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 
@@ -78,6 +88,8 @@ import java.util.Map;
 @SuppressWarnings({"AnonymousInnerClass"})
 public class BugTreePanel extends JPanel {
 
+	private static final Logger LOGGER = Logger.getInstance(BugTreePanel.class.getName());
+
 	private final Project _project;
 
 	private boolean _scrollToSource;
@@ -86,12 +98,29 @@ public class BugTreePanel extends JPanel {
 	private final RootNode _visibleRootNode;
 	private final GroupTreeModel _treeModel;
 	private final FindBugsPreferences _preferences;
+	/**
+	 * The shown bugs of {@link #_rawBugCollection}.
+	 */
 	private SortedBugCollection _bugCollection;
+	/**
+	 * Unfiltered result of the last analysis, see {@link ResultFilter}.
+	 */
+	private SortedBugCollection _rawBugCollection;
+	/**
+	 * See {@link ResultFilter#getSettingsKey(Project, FindBugsPreferences)}; the settings the shown bugs are filtered with.
+	 */
+	private String _filterKey;
+	private boolean _refilterPending;
 	private GroupBy[] _groupBy;
 	private final ToolWindowPanel _parent;
 	private double _splitPaneVerticalWeight = 1.0;
 	private final double _splitPaneHorizontalWeight = 0.4;
 	private boolean _bugPreviewEnabled;
+	private int _regroupSequence;
+	/**
+	 * Bugs which arrive while the tree is regrouped off EDT (not null while a regroup is running).
+	 */
+	private List<BugInstance> _regroupPendingBugs;
 
 
 	public BugTreePanel(@NotNull final ToolWindowPanel parent, @NotNull final Project project) {
@@ -114,16 +143,16 @@ public class BugTreePanel extends JPanel {
 	}
 
 
-	void addNode(@NotNull final BugInstance bugInstance) {
-		/*if(isHiddenBugGroup(bugInstance)) {
+	void addNodes(@NotNull final Collection<BugInstance> bugInstances) {
+		if (_regroupPendingBugs != null) {
+			_regroupPendingBugs.addAll(bugInstances);
 			return;
-		}*/
-
+		}
 		if (_treeModel.getGroupBy() != _groupBy) {
 			_treeModel.setGroupBy(_groupBy);
 		}
 
-		_treeModel.addNode(bugInstance);
+		_treeModel.addNodes(bugInstances);
 	}
 
 
@@ -143,6 +172,11 @@ public class BugTreePanel extends JPanel {
 
 	void clear() {
 		_bugCollection = null;
+		_rawBugCollection = null;
+		_filterKey = ResultFilter.getSettingsKey(_project, _preferences);
+		_refilterPending = false;
+		_regroupSequence++;
+		_regroupPendingBugs = null;
 		_treeModel.clear();
 	}
 
@@ -304,8 +338,44 @@ public class BugTreePanel extends JPanel {
 	}
 
 
-	public void setBugCollection(final BugCollection bugCollection) {
-		_bugCollection = (SortedBugCollection) bugCollection;
+	/**
+	 * @param bugCollection unfiltered result of the analysis; the tree already shows the bugs accepted by {@link ResultFilter}
+	 */
+	public void setBugCollection(@Nullable final BugCollection bugCollection) {
+		_rawBugCollection = (SortedBugCollection) bugCollection;
+		if (_rawBugCollection == null) {
+			_bugCollection = null;
+			return;
+		}
+		_bugCollection = _rawBugCollection.createEmptyCollectionWithMetadata();
+		for (final BugInstance bugInstance : _treeModel.getBugInstances()) {
+			_bugCollection.add(bugInstance, false);
+		}
+		if (_regroupPendingBugs != null) {
+			for (final BugInstance bugInstance : _regroupPendingBugs) {
+				_bugCollection.add(bugInstance, false);
+			}
+		}
+	}
+
+
+	/**
+	 * Applies changed filter settings (see {@link ResultFilter}) to the result of the last analysis
+	 * without re-analysis. Does nothing if the settings are unchanged or there is no result
+	 * (e. g. the analysis is still running, it uses the changed settings anyway).
+	 */
+	public void refilter() {
+		EventDispatchThreadHelper.checkEDT();
+		if (_rawBugCollection == null) {
+			return;
+		}
+		final String filterKey = ResultFilter.getSettingsKey(_project, _preferences);
+		if (filterKey.equals(_filterKey)) {
+			return;
+		}
+		_filterKey = filterKey;
+		_refilterPending = true;
+		regroupTree();
 	}
 
 
@@ -314,7 +384,31 @@ public class BugTreePanel extends JPanel {
 	}
 
 
-	public Map<PsiFile, List<ExtendedProblemDescriptor>> getProblems() {
+	@Nullable
+	public SortedBugCollection getUnfilteredBugCollection() {
+		return _rawBugCollection;
+	}
+
+
+	/**
+	 * Replaces the unfiltered result (e. g. without the bugs of disabled detectors, see {@link DetectorDelta})
+	 * and rebuilds the tree like {@link #refilter()}.
+	 *
+	 * @param bugCollection unfiltered result
+	 */
+	public void replaceBugCollection(@NotNull final SortedBugCollection bugCollection) {
+		EventDispatchThreadHelper.checkEDT();
+		if (_rawBugCollection == null) {
+			return;
+		}
+		_rawBugCollection = bugCollection;
+		_filterKey = ResultFilter.getSettingsKey(_project, _preferences);
+		_refilterPending = true;
+		regroupTree();
+	}
+
+
+	public Map<VirtualFile, List<ExtendedProblemDescriptor>> getProblems() {
 		return getTreeModel().getProblems();
 	}
 
@@ -333,26 +427,135 @@ public class BugTreePanel extends JPanel {
 	}
 
 
+	/**
+	 * The new groups are built off EDT (see {@link GroupTreeModel#createSnapshot(GroupBy[], Project, List)})
+	 * and swapped into the tree in one step. Bugs which arrive in the meantime are added after the swap.
+	 * If a {@link #refilter()} is pending, the unfiltered result is filtered off EDT too.
+	 */
 	private void regroupTree() {
 		EventDispatchThreadHelper.checkEDT();
-		if (_bugCollection != null) {
+		final SortedBugCollection rawBugCollection = _refilterPending ? _rawBugCollection : null;
+		final List<BugInstance> bugInstances = new ArrayList<BugInstance>(); // filled by the task if refiltered
+		if (rawBugCollection == null && _bugCollection != null) {
 			final Collection<BugInstance> instanceCollection = _bugCollection.getCollection();
-			if (instanceCollection != null && !instanceCollection.isEmpty()) {
-				_treeModel.clear();
-				for (final BugInstance bugInstance : instanceCollection) {
-					if (bugInstance != null) {
-						addNode(bugInstance);
-					}
+			if (instanceCollection == null || instanceCollection.isEmpty()) {
+				return;
+			}
+			for (final BugInstance bugInstance : instanceCollection) {
+				if (bugInstance != null) {
+					bugInstances.add(bugInstance);
 				}
 			}
-		} else {
+		} else if (rawBugCollection == null) {
 			// may be a analysis is running, we need to regroup existing nodes
-			final Collection<BugInstance> existing = _treeModel.getBugInstances();
-			_treeModel.clear();
-			for (final BugInstance bugInstance : existing) {
-				addNode(bugInstance);
+			bugInstances.addAll(_treeModel.getBugInstances());
+			if (_regroupPendingBugs != null) {
+				bugInstances.addAll(_regroupPendingBugs);
+			}
+		}
+
+		final int sequence = ++_regroupSequence;
+		final GroupBy[] groupBy = _groupBy.clone();
+		final ResultFilter resultFilter = rawBugCollection != null ? ResultFilter.create(_project, _preferences) : null; // reads the preferences, EDT
+		_regroupPendingBugs = new ArrayList<BugInstance>();
+		new Task.Backgroundable(_project, rawBugCollection != null ? "Filtering FindBugs results" : "Regrouping FindBugs results", false) {
+			private GroupTreeModel _snapshot;
+			private SortedBugCollection _filtered;
+
+
+			@Override
+			public void run(@NotNull final ProgressIndicator indicator) {
+				indicator.setIndeterminate(true);
+				try {
+					if (rawBugCollection != null && resultFilter != null) {
+						final long start = System.currentTimeMillis();
+						_filtered = resultFilter.filter(rawBugCollection);
+						bugInstances.addAll(_filtered.getCollection());
+						LOGGER.info("Filtered " + rawBugCollection.getCollection().size() + " bug(s) to " + bugInstances.size() + " in " + (System.currentTimeMillis() - start) + " ms");
+					}
+					_snapshot = GroupTreeModel.createSnapshot(groupBy, _project, bugInstances);
+				} catch (final InterruptedException ignored) {
+					Thread.currentThread().interrupt();
+				} catch (final RuntimeException e) {
+					LOGGER.error("Regrouping failed", e);
+				}
+			}
+
+
+			@Override
+			public void onSuccess() {
+				if (sequence != _regroupSequence) {
+					return; // cleared or regrouped again
+				}
+				if (_filtered != null) {
+					// the editors must be updated like after an analysis
+					HighlightingUpdater.analysisStarted(_project, getProblems());
+					_bugCollection = _filtered;
+					_refilterPending = false;
+				}
+				if (_snapshot != null) {
+					swapTreeModel(_snapshot);
+				} else {
+					final List<BugInstance> pending = _regroupPendingBugs;
+					_regroupPendingBugs = null;
+					_treeModel.clear();
+					addNodes(bugInstances);
+					addNodes(pending);
+				}
+				if (_filtered != null) {
+					updateRootNode(_filtered.getProjectStats());
+					HighlightingUpdater.analysisEnded(_project, getProblems());
+				}
+			}
+		}.queue();
+	}
+
+
+	private void swapTreeModel(@NotNull final GroupTreeModel snapshot) {
+		final List<String[]> expandedGroups = new ArrayList<String[]>();
+		final Enumeration<TreePath> expanded = _bugTree.getExpandedDescendants(new TreePath(_visibleRootNode));
+		if (expanded != null) {
+			while (expanded.hasMoreElements()) {
+				expandedGroups.add(getGroupNames(expanded.nextElement()));
+			}
+		}
+		BugInstance selected = null;
+		final TreePath selectionPath = _bugTree.getSelectionPath();
+		if (selectionPath != null && selectionPath.getLastPathComponent() instanceof BugInstanceNode) {
+			selected = ((BugInstanceNode) selectionPath.getLastPathComponent()).getBugInstance();
+		}
+
+		final List<BugInstance> pending = _regroupPendingBugs;
+		_regroupPendingBugs = null;
+		_treeModel.swap(snapshot);
+		addNodes(pending);
+
+		for (final String[] groupNames : expandedGroups) {
+			final TreePath path = _treeModel.findGroupPath(groupNames);
+			if (path != null) {
+				_bugTree.expandPath(path);
+			}
+		}
+		if (selected != null) {
+			final BugInstanceNode node = _treeModel.findNodeByBugInstance(selected);
+			if (node != null) {
+				final TreePath path = new TreePath(_treeModel.getPathToRoot(node));
+				_bugTree.setSelectionPath(path);
+				_bugTree.scrollPathToVisible(path);
+			}
+		}
+	}
+
+
+	@NotNull
+	private static String[] getGroupNames(@NotNull final TreePath path) {
+		final List<String> ret = new ArrayList<String>();
+		for (final Object node : path.getPath()) {
+			if (node instanceof BugInstanceGroupNode) {
+				ret.add(((BugInstanceGroupNode) node).getGroupName());
 			}
 		}
+		return ret.toArray(new String[ret.size()]);
 	}
 
 
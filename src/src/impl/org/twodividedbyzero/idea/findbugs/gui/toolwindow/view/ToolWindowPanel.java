@@ -30,10 +30,10 @@ import com.intellij.openapi.actionSystem.ActionManager;
 import com.intellij.openapi.actionSystem.ActionToolbar;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Editor;
-import com.intellij.openapi.editor.EditorFactory;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogBuilder;
 import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.StatusBar;
 import com.intellij.openapi.wm.StatusBarWidget;
 import com.intellij.openapi.wm.ToolWindow;
@@ -60,6 +60,7 @@ import org.twodividedbyzero.idea.findbugs.gui.common.MultiSplitLayout;
 import org.twodividedbyzero.idea.findbugs.gui.common.MultiSplitPane;
 import org.twodividedbyzero.idea.findbugs.gui.common.NDockLayout;
 import org.twodividedbyzero.idea.findbugs.gui.common.NotificationUtil;
+import org.twodividedbyzero.idea.findbugs.gui.editor.HighlightingUpdater;
 import org.twodividedbyzero.idea.findbugs.messages.AnalysisStateListener;
 import org.twodividedbyzero.idea.findbugs.messages.ClearListener;
 import org.twodividedbyzero.idea.findbugs.messages.MessageBusManager;
@@ -128,8 +129,8 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 		});
 		MessageBusManager.subscribe(project, this, NewBugInstanceListener.TOPIC, new NewBugInstanceListener() {
 			@Override
-			public void newBugInstance(@NotNull final BugInstance bugInstance, @NotNull final ProjectStats projectStats) {
-				_bugTreePanel.addNode(bugInstance);
+			public void newBugInstances(@NotNull final List<BugInstance> bugInstances, @NotNull final ProjectStats projectStats) {
+				_bugTreePanel.addNodes(bugInstances);
 				_bugTreePanel.updateRootNode(projectStats);
 			}
 		});
@@ -274,7 +275,7 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 	}
 
 
-	public Map<PsiFile, List<ExtendedProblemDescriptor>> getProblems() {
+	public Map<VirtualFile, List<ExtendedProblemDescriptor>> getProblems() {
 		return _bugTreePanel.getProblems();
 	}
 
@@ -289,8 +290,7 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 
 	@Override
 	public void analysisStarted() {
-		EditorFactory.getInstance().refreshAllEditors();
-		DaemonCodeAnalyzer.getInstance(_project).restart();
+		HighlightingUpdater.analysisStarted(_project, getProblems());
 		updateLayout(false);
 		clear();
 	}
@@ -304,6 +304,7 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 	@Override
 	public void analysisAborted() {
 		_bugTreePanel.setBugCollection(null);
+		HighlightingUpdater.analysisEnded(_project, getProblems());
 		BalloonTipFactory.showToolWindowInfoNotifier(_project, "Analysis aborted");
 	}
 
@@ -311,6 +312,7 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 	@Override
 	public void analysisFinished(@NotNull final BugCollection bugCollection, @Nullable final FindBugsProject findBugsProject, @Nullable final Throwable error) {
 		_bugTreePanel.setBugCollection(bugCollection);
+		_bugTreePanel.refilter(); // settings changed while the analysis was running
 		final ProjectStats stats = bugCollection.getProjectStats();
 		_bugTreePanel.updateRootNode(stats);
 		_bugTreePanel.getBugTree().validate();
@@ -367,8 +369,10 @@ public final class ToolWindowPanel extends JPanel implements AnalysisStateListen
 			).setImportant(false).notify(_project);
 		}
 
-		EditorFactory.getInstance().refreshAllEditors();
-		DaemonCodeAnalyzer.getInstance(_project).restart();
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Problem cache: " + getProblems().size() + " file(s), " + _bugTreePanel.getGroupModel().getProblemCount() + " problem(s)");
+		}
+		HighlightingUpdater.analysisEnded(_project, getProblems());
 	}
 
 
@@ -26,10 +26,9 @@ import edu.umd.cs.findbugs.BugRankCategory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.gui.tree.BugInstanceComparator;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
 import org.twodividedbyzero.idea.findbugs.gui.tree.GroupBy;
 import org.twodividedbyzero.idea.findbugs.gui.tree.NodeVisitor;
-import org.twodividedbyzero.idea.findbugs.gui.tree.RecurseNodeVisitor;
-import org.twodividedbyzero.idea.findbugs.gui.tree.RecurseNodeVisitor.RecurseVisitCriteria;
 import org.twodividedbyzero.idea.findbugs.gui.tree.view.MaskIcon;
 import org.twodividedbyzero.idea.findbugs.resources.GuiResources;
 
@@ -42,6 +41,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 
 /**
@@ -53,9 +53,24 @@ import java.util.Locale;
  */
 public class BugInstanceGroupNode extends AbstractTreeNode<VisitableTreeNode> implements VisitableTreeNode {
 
+	private static final Comparator<TreeNode> CHILD_COMPARATOR = new ChildComparator();
+	/**
+	 * Each {@link MaskIcon} holds its own image, so share them between all group nodes.
+	 */
+	private static final Map<Icon, Icon> MASK_ICONS = New.map();
+
+	/**
+	 * The child groups, or the leafs of {@link #_bugs} once they were created.
+	 */
 	private final List<VisitableTreeNode> _childs;
+	/**
+	 * The bugs of a group without child groups (in insertion order). Their leafs are created
+	 * when the childs are requested the first time (group expanded), until then the group only
+	 * counts them, see {@link #getChildCount()}.
+	 */
+	private List<BugInstance> _bugs;
+	private boolean _leafsCreated;
 	private final BugInstance _bugInstance;
-	private final RecurseNodeVisitor<BugInstanceGroupNode> _recurseNodeVisitor = new RecurseNodeVisitor<BugInstanceGroupNode>(this);
 	private final Project _project;
 
 
@@ -84,115 +99,69 @@ public class BugInstanceGroupNode extends AbstractTreeNode<VisitableTreeNode> im
 		_depthFromRoot = depth;
 
 		setTooltip(_groupName);
-		setCollapsedIcon(new MaskIcon(getGroupByCollapsedIcon(groupBy), JBColor.BLACK));
-		setExpandedIcon(new MaskIcon(getGroupByExpandedIcon(groupBy), JBColor.BLACK));
-	}
-
-
-	Project getProject() {
-		return _project;
+		setCollapsedIcon(getMaskIcon(getGroupByCollapsedIcon(groupBy)));
+		setExpandedIcon(getMaskIcon(getGroupByExpandedIcon(groupBy)));
 	}
 
 
-	@Override
-	public void addChild(final VisitableTreeNode node) {
-		_childs.add(node);
-
-		if (node instanceof BugInstanceNode && node.isLeaf()) {
-
-			Collections.sort(_childs, new ChildComparator());
-
-			incrementMemberCount();
-			TreeNode treeNode = getParent();
-			while (treeNode != null && treeNode instanceof BugInstanceGroupNode) {
-				((BugInstanceGroupNode) treeNode).incrementMemberCount();
-				treeNode = treeNode.getParent();
+	@NotNull
+	private static Icon getMaskIcon(@NotNull final Icon icon) {
+		synchronized (MASK_ICONS) {
+			Icon ret = MASK_ICONS.get(icon);
+			if (ret == null) {
+				ret = new MaskIcon(icon, JBColor.BLACK);
+				MASK_ICONS.put(icon, ret);
 			}
+			return ret;
 		}
 	}
 
 
-	/**
-	 * Perfomrs a deep search. Get child BugInstanceGroupNode by BugInstance group name.
-	 *
-	 * @param groupName the group name to search for
-	 * @param depth
-	 * @return the BugInstanceGroupNode
-	 * @deprecated use {@link BugInstanceGroupNode#findChildNode(edu.umd.cs.findbugs.BugInstance, int, String)}
-	 */
-	@Deprecated
-	@Nullable
-	public BugInstanceGroupNode getChildByGroupName(final String groupName, final int depth) {
-
-		if (groupName.equals(_groupName) && depth == _depthFromRoot) {
-			return this;
-		}
-
-		BugInstanceGroupNode resultNode = null;
-		for (final TreeNode node : _childs) {
-			if (node instanceof BugInstanceGroupNode) {
-				final BugInstanceGroupNode groupNode = (BugInstanceGroupNode) node;
-				if (groupName.equals(groupNode.getGroupName()) && depth == groupNode.getDepth()) {
-					resultNode = groupNode;
-				} else {
-					resultNode = groupNode.getChildByGroupName(groupName, depth);
-				}
-
-				if (resultNode != null) {
-					break;
-				}
-			}
-		}
-
-		return resultNode;
+	Project getProject() {
+		return _project;
 	}
 
 
 	/**
-	 * Perfomrs a deep search. Get child BugInstanceGroupNode by BugInstance object.
+	 * Adds a bug to a group without child groups. If the leafs were already created, the leaf
+	 * of {@code bugInstance} is inserted by binary search behind all equal childs, so the childs
+	 * stay sorted (and stable) without sorting the whole list again.
 	 *
-	 * @param bugInstance the findbugs buginstance to search for
-	 * @param depth	   the machting depth to search for
-	 * @return the BugInstanceGroupNode
-	 * @deprecated use {@link BugInstanceGroupNode#findChildNode(edu.umd.cs.findbugs.BugInstance, int, String)}
+	 * @param bugInstance the new bug
+	 * @return the index of the new leaf, or -1 if the leafs are not created yet
 	 */
-	@Deprecated
-	@Nullable
-	public BugInstanceGroupNode getChildByBugInstance(final BugInstance bugInstance, final int depth) {
-		if (bugInstance.equals(_bugInstance) && depth == _depthFromRoot) {
-			return this;
+	int addBugInstance(@NotNull final BugInstance bugInstance) {
+		if (_bugs == null) {
+			_bugs = new ArrayList<BugInstance>();
 		}
-
-		BugInstanceGroupNode resultNode = null;
-
-		for (final TreeNode node : _childs) {
-			if (node instanceof BugInstanceGroupNode) {
-				final BugInstanceGroupNode groupNode = (BugInstanceGroupNode) node;
-				if (bugInstance.equals(groupNode.getBugInstance()) && depth == groupNode.getDepth()) {
-					resultNode = groupNode;
-					//break;
-				} else {
-					resultNode = groupNode.getChildByBugInstance(bugInstance, depth);
-				}
-
-				if (resultNode != null) {
-					break;
-				}
+		_bugs.add(bugInstance);
+		incrementMemberCounts();
+		if (!_leafsCreated) {
+			return -1;
+		}
+		final BugInstanceNode node = new BugInstanceNode(bugInstance, this, _project);
+		int low = 0;
+		int high = _childs.size();
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (CHILD_COMPARATOR.compare(_childs.get(mid), node) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
 			}
 		}
-
-		return resultNode;
+		_childs.add(low, node);
+		return low;
 	}
 
 
-	@Nullable
-	public BugInstanceGroupNode findChildNode(final BugInstance bugInstance, final int depth, final String groupName) {
-		if (bugInstance.equals(_bugInstance) && depth == _depthFromRoot && groupName.equals(_groupName)) {
-			return this;
+	private void incrementMemberCounts() {
+		incrementMemberCount();
+		TreeNode treeNode = getParent();
+		while (treeNode != null && treeNode instanceof BugInstanceGroupNode) {
+			((BugInstanceGroupNode) treeNode).incrementMemberCount();
+			treeNode = treeNode.getParent();
 		}
-
-		final RecurseVisitCriteria criteria = new RecurseVisitCriteria(bugInstance, depth, groupName);
-		return _recurseNodeVisitor.findChildNode(criteria);
 	}
 
 
@@ -282,12 +251,57 @@ public class BugInstanceGroupNode extends AbstractTreeNode<VisitableTreeNode> im
 	}
 
 
+	/**
+	 * Creates the (sorted) leafs of the bugs on first request.
+	 */
 	@Override
 	public List<VisitableTreeNode> getChildsList() {
+		if (_bugs != null && !_leafsCreated) {
+			for (final BugInstance bugInstance : _bugs) {
+				_childs.add(new BugInstanceNode(bugInstance, this, _project));
+			}
+			Collections.sort(_childs, CHILD_COMPARATOR);
+			_leafsCreated = true;
+		}
 		return _childs;
 	}
 
 
+	/**
+	 * Does not create the leafs.
+	 */
+	@Override
+	public int getChildCount() {
+		return _bugs != null ? _bugs.size() : _childs.size();
+	}
+
+
+	/**
+	 * Does not create the leafs; if they are not created yet, {@code node} can not be a child.
+	 */
+	@Override
+	public int getIndex(final TreeNode node) {
+		return _childs.indexOf(node);
+	}
+
+
+	@Override
+	public void removeAllChilds() {
+		_childs.clear();
+		_bugs = null;
+		_leafsCreated = false;
+	}
+
+
+	/**
+	 * @return the bugs of this group in insertion order, or null if this group contains groups
+	 */
+	@Nullable
+	List<BugInstance> getBugInstances() {
+		return _bugs;
+	}
+
+
 	public BugInstanceGroupNode getTreeNode() {
 		return this;
 	}
@@ -299,7 +313,7 @@ public class BugInstanceGroupNode extends AbstractTreeNode<VisitableTreeNode> im
 
 
 	public boolean isLeaf() {
-		return _childs.isEmpty();
+		return getChildCount() == 0;
 	}
 
 
@@ -385,7 +399,6 @@ public class BugInstanceGroupNode extends AbstractTreeNode<VisitableTreeNode> im
 		sb.append("BugInstanceGroupNode");
 		sb.append("{_childs=").append(_childs);
 		sb.append(", _bugInstance=").append(_bugInstance);
-		sb.append(", _recurseNodeVisitor=").append(_recurseNodeVisitor);
 		sb.append('}');
 		return sb.toString();
 	}
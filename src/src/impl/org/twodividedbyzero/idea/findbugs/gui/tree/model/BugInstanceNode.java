@@ -21,7 +21,9 @@ package org.twodividedbyzero.idea.findbugs.gui.tree.model;
 import com.intellij.codeInspection.ProblemDescriptor;
 import com.intellij.icons.AllIcons;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import com.intellij.ui.JBColor;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.SourceLineAnnotation;
@@ -50,11 +52,17 @@ import java.util.List;
  */
 public class BugInstanceNode extends AbstractTreeNode<VisitableTreeNode> implements VisitableTreeNode {
 
-	private PsiFile _file;
+	/**
+	 * Do not keep the PsiFile, it pins the whole PSI tree.
+	 */
+	private VirtualFile _virtualFile;
 	private ProblemDescriptor _problem;
 	private String _description;
 	private BugInstance _bugInstance;
-	private final List<VisitableTreeNode> _childs;
+	/**
+	 * A bug node is always a leaf, do not allocate a child list per node.
+	 */
+	private static final List<VisitableTreeNode> NO_CHILDS = Collections.emptyList();
 	private final Project _project;
 
 	private static final Icon _expandedIcon = new MaskIcon(AllIcons.Nodes.Class, JBColor.BLACK);
@@ -72,7 +80,6 @@ public class BugInstanceNode extends AbstractTreeNode<VisitableTreeNode> impleme
 		_project = project;
 		//_parent = parent;
 		setParent(parent);
-		_childs = new ArrayList<VisitableTreeNode>();
 		_simpleName = simpleName;
 
 		setTooltip(_simpleName);
@@ -91,7 +98,6 @@ public class BugInstanceNode extends AbstractTreeNode<VisitableTreeNode> impleme
 		_project = project;
 		//_parent = parent;
 		setParent(parent);
-		_childs = new ArrayList<VisitableTreeNode>();
 		_bugInstance = bugInstance;
 		_simpleName = simpleName == null ? bugInstance.getMessageWithoutPrefix() : simpleName;
 
@@ -112,8 +118,7 @@ public class BugInstanceNode extends AbstractTreeNode<VisitableTreeNode> impleme
 		_project = project;
 		//_parent = parent;
 		setParent(parent);
-		_childs = new ArrayList<VisitableTreeNode>();
-		_file = file;
+		_virtualFile = file.getVirtualFile();
 		_problem = problem;
 		_bugInstance = bugInstance;
 		_simpleName = bugInstance.getMessageWithoutPrefix();
@@ -144,10 +149,13 @@ public class BugInstanceNode extends AbstractTreeNode<VisitableTreeNode> impleme
 
 	@Nullable
 	public PsiFile getPsiFile() {
-		if(_file == null) {
-			_file = BugInstanceUtil.getPsiElement(_project, this);
+		final PsiFile ret = findPsiFile();
+		if (ret != null) {
+			return ret;
 		}
-		return _file;
+		final PsiFile file = BugInstanceUtil.getPsiElement(_project, this);
+		setPsiFile(file);
+		return file;
 	}
 
 
@@ -155,15 +163,39 @@ public class BugInstanceNode extends AbstractTreeNode<VisitableTreeNode> impleme
 	@Nullable
 	public PsiFile findAndGetPsiFile() {
 		EventDispatchThreadHelper.checkEDT();
-		if(_file == null) {
-			_file = BugInstanceUtil.findPsiElement(_project, this);
+		final PsiFile ret = findPsiFile();
+		if (ret != null) {
+			return ret;
+		}
+		final PsiFile file = BugInstanceUtil.findPsiElement(_project, this);
+		setPsiFile(file);
+		return file;
+	}
+
+
+	@Nullable
+	private PsiFile findPsiFile() {
+		final VirtualFile virtualFile = _virtualFile;
+		if (virtualFile == null || !virtualFile.isValid()) {
+			return null;
 		}
-		return _file;
+		return PsiManager.getInstance(_project).findFile(virtualFile);
+	}
+
+
+	public void setPsiFile(@Nullable final PsiFile file) {
+		_virtualFile = file == null ? null : file.getVirtualFile();
+	}
+
+
+	@Nullable
+	public VirtualFile getVirtualFile() {
+		return _virtualFile;
 	}
 
 
-	public void setPsiFile(final PsiFile file) {
-		_file = file;
+	public void setVirtualFile(@Nullable final VirtualFile virtualFile) {
+		_virtualFile = virtualFile;
 	}
 
 
@@ -184,7 +216,7 @@ public class BugInstanceNode extends AbstractTreeNode<VisitableTreeNode> impleme
 
 	@Override
 	public List<VisitableTreeNode> getChildsList() {
-		return _childs;
+		return NO_CHILDS;
 	}
 
 
@@ -280,11 +312,10 @@ public class BugInstanceNode extends AbstractTreeNode<VisitableTreeNode> impleme
 	public String toString() {
 		final StringBuilder sb = new StringBuilder();
 		sb.append("BugInstanceNode");
-		sb.append("{_file=").append(_file);
+		sb.append("{_virtualFile=").append(_virtualFile);
 		sb.append(", _problem=").append(_problem);
 		sb.append(", _description='").append(_description).append('\'');
 		sb.append(", _bugInstance=").append(_bugInstance);
-		sb.append(", _childs=").append(_childs);
 		sb.append('}');
 		return sb.toString();
 	}
@@ -296,6 +327,6 @@ public class BugInstanceNode extends AbstractTreeNode<VisitableTreeNode> impleme
 
 
 	public boolean isLeaf() {
-		return _childs.isEmpty();
+		return true;
 	}
 }
@@ -18,29 +18,37 @@
  */
 package org.twodividedbyzero.idea.findbugs.gui.tree.model;
 
-import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import edu.umd.cs.findbugs.BugInstance;
 import org.jetbrains.annotations.NotNull;
 import org.twodividedbyzero.idea.findbugs.common.EventDispatchThreadHelper;
 import org.twodividedbyzero.idea.findbugs.common.ExtendedProblemDescriptor;
-import org.twodividedbyzero.idea.findbugs.common.util.BugInstanceUtil;
+import org.twodividedbyzero.idea.findbugs.core.FindBugsState;
 import org.twodividedbyzero.idea.findbugs.gui.tree.BugInstanceComparator;
 import org.twodividedbyzero.idea.findbugs.gui.tree.GroupBy;
-import org.twodividedbyzero.idea.findbugs.gui.tree.model.Grouper.GrouperCallback;
 
 import javax.annotation.Nullable;
+import javax.swing.tree.TreeNode;
+import javax.swing.tree.TreePath;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 
 /**
@@ -50,24 +58,59 @@ import java.util.concurrent.ConcurrentMap;
  * @version $Revision$
  * @since 0.0.1
  */
-public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNode> implements GrouperCallback<BugInstance> {
+public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNode> {
 
-	private static final Logger LOGGER = Logger.getInstance(GroupTreeModel.class.getName());
+	private static final int MIN_BUGS_PER_THREAD = 2000;
 
 	private GroupBy[] _groupBy;
-	private final transient Map<String, Map<Integer, List<BugInstanceGroupNode>>> _groups;
-	private transient Grouper<BugInstance> _grouper;
+	/**
+	 * Group name trie: child groups of the root and of each group node by group name.
+	 */
+	private final transient Map<VisitableTreeNode, Map<String, BugInstanceGroupNode>> _groups;
+	/**
+	 * Group names are shared by many bugs, keep one instance per name.
+	 */
+	private final transient Map<String, String> _groupNames;
 	private int _bugCount;
-	private final transient ConcurrentMap<PsiFile, List<ExtendedProblemDescriptor>> _problems;
+	/**
+	 * Keyed by file, not by PsiFile: the descriptors keep no PSI so the cache does not pin PSI trees.
+	 */
+	private final transient ConcurrentMap<VirtualFile, List<ExtendedProblemDescriptor>> _problems;
 	private final transient Project _project;
+	private final transient PsiFileResolver _psiFileResolver;
+	/**
+	 * Inserted nodes by parent with pending events while a batch is added, see {@link #addNodes(Collection)}.
+	 */
+	private transient Map<VisitableTreeNode, Set<VisitableTreeNode>> _insertedNodes;
+	/**
+	 * Group nodes with changed member count while a batch is added.
+	 */
+	private transient Set<VisitableTreeNode> _changedNodes;
+	/**
+	 * A detached model is built off EDT and fires no events, see {@link #createSnapshot(GroupBy[], Project, List)}.
+	 */
+	private final boolean _detached;
 
 
 	public GroupTreeModel(@NotNull final RootNode root, final GroupBy[] groupBy, final Project project) {
+		this(root, groupBy, project, false);
+	}
+
+
+	private GroupTreeModel(@NotNull final RootNode root, final GroupBy[] groupBy, final Project project, final boolean detached) {
+		_detached = detached;
 		_root = root;
 		_project = project;
 		_groupBy = groupBy.clone();
-		_groups = new HashMap<String, Map<Integer, List<BugInstanceGroupNode>>>();
-		_problems = new ConcurrentHashMap<PsiFile, List<ExtendedProblemDescriptor>>();
+		_groups = new HashMap<VisitableTreeNode, Map<String, BugInstanceGroupNode>>();
+		_groupNames = new HashMap<String, String>();
+		_problems = new ConcurrentHashMap<VirtualFile, List<ExtendedProblemDescriptor>>();
+		_psiFileResolver = new PsiFileResolver(project, new PsiFileResolver.Callback() {
+			@Override
+			public void resolved(@NotNull final List<BugInstance> bugs, @NotNull final List<VirtualFile> files) {
+				addProblems(bugs, files);
+			}
+		});
 	}
 
 
@@ -76,60 +119,81 @@ public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNod
 	}
 
 
-	private void addGroupIfAbsent(final String groupNameKey, final int depth, final BugInstanceGroupNode groupNode) {
-		if (!_groups.containsKey(groupNameKey)) {
-			final Map<Integer, List<BugInstanceGroupNode>> map = new HashMap<Integer, List<BugInstanceGroupNode>>();
-			_groups.put(groupNameKey, map);
-			final List<BugInstanceGroupNode> groupNodes = addGroupIfAbsentImpl(groupNameKey, depth, groupNode);
-			map.put(depth, groupNodes);
-		} else {
-			addGroupIfAbsentImpl(groupNameKey, depth, groupNode);
-		}
+	@SuppressWarnings({"ReturnOfCollectionOrArrayField"})
+	public Map<VirtualFile, List<ExtendedProblemDescriptor>> getProblems() {
+		return _problems;
 	}
 
 
-	@NotNull
-	private List<BugInstanceGroupNode> addGroupIfAbsentImpl(final String groupNameKey, final int depth, final BugInstanceGroupNode groupNode) {
-		final Map<Integer, List<BugInstanceGroupNode>> map = _groups.get(groupNameKey);
-
-		if (map.containsKey(depth)) {
-			final List<BugInstanceGroupNode> list = map.get(depth);
-			list.add(groupNode);
+	/**
+	 * @return number of problems in {@link #getProblems()}
+	 */
+	public int getProblemCount() {
+		int ret = 0;
+		for (final List<ExtendedProblemDescriptor> problems : _problems.values()) {
+			ret += problems.size();
+		}
+		return ret;
+	}
 
-			return list;
-		} else {
-			final List<BugInstanceGroupNode> list = new ArrayList<BugInstanceGroupNode>();
-			list.add(groupNode);
-			map.put(depth, list);
 
-			return list;
+	/**
+	 * The problem is added later if the file of {@code bugInstance} is not resolved yet, see {@link PsiFileResolver}.
+	 */
+	private void addProblem(@NotNull final BugInstance bugInstance) {
+		final VirtualFile file = _psiFileResolver.resolve(bugInstance);
+		if (file != null) {
+			_addProblem(file, bugInstance);
 		}
 	}
 
 
-	@SuppressWarnings({"ReturnOfCollectionOrArrayField"})
-	public Map<PsiFile, List<ExtendedProblemDescriptor>> getProblems() {
-		return _problems;
+	private void addProblems(@NotNull final List<BugInstance> bugs, @NotNull final List<VirtualFile> files) {
+		final Set<VirtualFile> changed = new HashSet<VirtualFile>();
+		for (int i = 0; i < bugs.size(); i++) {
+			final VirtualFile file = files.get(i);
+			_addProblem(file, bugs.get(i));
+			changed.add(file);
+		}
+		if (FindBugsState.get(_project).isIdle()) {
+			// otherwise the editors are restarted when the analysis has finished
+			final DaemonCodeAnalyzer daemonCodeAnalyzer = DaemonCodeAnalyzer.getInstance(_project);
+			final PsiManager psiManager = PsiManager.getInstance(_project);
+			for (final VirtualFile file : changed) {
+				final PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+				if (psiFile != null) {
+					daemonCodeAnalyzer.restart(psiFile);
+				}
+			}
+		}
 	}
 
 
-	@SuppressWarnings({"MethodMayBeStatic", "AnonymousInnerClass"})
-	private void addProblem(final BugInstanceNode leaf) {
-		final PsiFile psiFile = leaf.findAndGetPsiFile();
-		_addProblem(psiFile, leaf);
+	private void clearProblems() {
+		for (final List<ExtendedProblemDescriptor> problems : _problems.values()) {
+			for (final ExtendedProblemDescriptor problem : problems) {
+				problem.dispose();
+			}
+		}
+		_problems.clear();
 	}
 
 
-	private void _addProblem(@Nullable final PsiFile value, final BugInstanceNode leaf) {
+	private void _addProblem(@Nullable final VirtualFile value, @NotNull final BugInstance bugInstance) {
 		if (value != null) {
-			final ExtendedProblemDescriptor element = new ExtendedProblemDescriptor(value, leaf);
-			if (_problems.containsKey(value)) {
-				_problems.get(value).add(element);
-			} else {
-				final List<ExtendedProblemDescriptor> list = new ArrayList<ExtendedProblemDescriptor>();
-				list.add(element);
-				_problems.put(value, list);
-			}
+			addProblem(new ExtendedProblemDescriptor(_project, value, bugInstance));
+		}
+	}
+
+
+	private void addProblem(@NotNull final ExtendedProblemDescriptor problem) {
+		final VirtualFile value = problem.getVirtualFile();
+		if (_problems.containsKey(value)) {
+			_problems.get(value).add(problem);
+		} else {
+			final List<ExtendedProblemDescriptor> list = new ArrayList<ExtendedProblemDescriptor>();
+			list.add(problem);
+			_problems.put(value, list);
 		}
 	}
 
@@ -140,120 +204,350 @@ public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNod
 	}
 
 
-	@SuppressWarnings({"LockAcquiredButNotSafelyReleased"})
+	/**
+	 * Inserts the bug with O(depth) group lookups: the group names of the bug are computed
+	 * once and each group is found by name in the child groups of its parent.
+	 *
+	 * @param bugInstance ..
+	 */
 	public void addNode(final BugInstance bugInstance) {
-		/*if(isHiddenBugGroup(bugInstance)) {
-			return;
-		}*/
-		_bugCount++;
-		group(bugInstance);
+		EventDispatchThreadHelper.checkEDT();
+		if (insert(bugInstance, intern(getGroupNames(_groupBy, bugInstance)))) {
+			addProblem(bugInstance);
+		}
 	}
 
 
-	private void group(final BugInstance bugInstance) {
-		if (_grouper == null) {
-			_grouper = new Grouper<BugInstance>(this);
+	/**
+	 * The leaf is only created (and its insertion fired) if the leafs of the group were already created.
+	 *
+	 * @return false if there is no group to insert into
+	 */
+	private boolean insert(@NotNull final BugInstance bugInstance, @NotNull final String[] groupNames) {
+		_bugCount++;
+		VisitableTreeNode parent = _root;
+		BugInstanceGroupNode group = null;
+		for (int depth = 0; depth < groupNames.length; depth++) {
+			Map<String, BugInstanceGroupNode> childGroups = _groups.get(parent);
+			if (childGroups == null) {
+				childGroups = new HashMap<String, BugInstanceGroupNode>();
+				_groups.put(parent, childGroups);
+			}
+			group = childGroups.get(groupNames[depth]);
+			if (group == null) {
+				group = new BugInstanceGroupNode(_groupBy[depth], groupNames[depth], parent, bugInstance, depth, _project);
+				childGroups.put(groupNames[depth], group);
+				parent.getTreeNode().addChild(group);
+				inserted(parent, group, parent.getChildCount() - 1);
+			}
+			parent = group;
 		}
-		final List<Comparator<BugInstance>> groupComparators = BugInstanceComparator.getGroupComparators(_groupBy);
-		_grouper.group(bugInstance, groupComparators);
+
+		if (group == null) {
+			return false;
+		}
+		final int index = group.addBugInstance(bugInstance);
+		if (index >= 0) {
+			inserted(group, group.getChildAt(index), index);
+		}
+		memberCountChanged(group);
+		return true;
 	}
 
 
-	public void startGroup(final BugInstance member, final int depth) {
-		EventDispatchThreadHelper.assertInEDTorADT();
+	/**
+	 * Same as {@link #addNode(BugInstance)} for each bug, but fires at most one
+	 * {@link #nodesWereInserted} event per parent (and none below inserted nodes)
+	 * and one {@link #nodeChanged} event per group with a changed member count.
+	 *
+	 * @param bugInstances ..
+	 */
+	public void addNodes(@NotNull final Collection<BugInstance> bugInstances) {
+		EventDispatchThreadHelper.checkEDT();
+		final Map<VisitableTreeNode, Set<VisitableTreeNode>> inserted = new HashMap<VisitableTreeNode, Set<VisitableTreeNode>>();
+		final Set<VisitableTreeNode> changed = new HashSet<VisitableTreeNode>();
+		_insertedNodes = inserted;
+		_changedNodes = changed;
+		try {
+			for (final BugInstance bugInstance : bugInstances) {
+				addNode(bugInstance);
+			}
+		} finally {
+			_insertedNodes = null;
+			_changedNodes = null;
+		}
+
+		final Set<VisitableTreeNode> newNodes = new HashSet<VisitableTreeNode>();
+		for (final Set<VisitableTreeNode> nodes : inserted.values()) {
+			newNodes.addAll(nodes);
+		}
+		for (final Entry<VisitableTreeNode, Set<VisitableTreeNode>> entry : inserted.entrySet()) {
+			final VisitableTreeNode parent = entry.getKey();
+			if (!isNewNode(parent, newNodes)) {
+				nodesWereInserted(parent, getChildIndices(parent, entry.getValue()));
+			}
+		}
+		for (final VisitableTreeNode node : changed) {
+			if (!isNewNode(node, newNodes)) {
+				nodeChanged(node);
+			}
+		}
+	}
 
-		final GroupBy groupBy = _groupBy[depth];
-		final String groupName = GroupBy.getGroupName(groupBy, member);
-		final BugInstanceGroupNode groupNode = new BugInstanceGroupNode(groupBy, groupName, _root, member, depth, _project);
 
-		addGroupIfAbsent(Arrays.toString(BugInstanceUtil.getGroupPath(member, depth, _groupBy)), depth, groupNode);
+	private void inserted(@NotNull final VisitableTreeNode parent, @NotNull final VisitableTreeNode child, final int index) {
+		if (_detached) {
+			return;
+		}
+		if (_insertedNodes != null) {
+			Set<VisitableTreeNode> children = _insertedNodes.get(parent);
+			if (children == null) {
+				children = new HashSet<VisitableTreeNode>();
+				_insertedNodes.put(parent, children);
+			}
+			children.add(child);
+		} else {
+			nodesWereInserted(parent, new int[] {index});
+		}
+	}
 
-		_root.addChild(groupNode);
-		nodeStructureChanged(_root);
 
-		startSubGroup(depth + 1, member, member);
+	private void memberCountChanged(@NotNull final BugInstanceGroupNode group) {
+		if (_detached) {
+			return;
+		}
+		TreeNode node = group;
+		while (node instanceof BugInstanceGroupNode) {
+			if (_changedNodes != null) {
+				_changedNodes.add((VisitableTreeNode) node);
+			} else {
+				nodeChanged((VisitableTreeNode) node);
+			}
+			node = node.getParent();
+		}
 	}
 
 
-	public void startSubGroup(final int depth, final BugInstance member, final BugInstance parent) {
-		EventDispatchThreadHelper.assertInEDTorADT();
+	/**
+	 * @return true if {@code node} or one of its ancestors is in {@code newNodes}
+	 */
+	private static boolean isNewNode(@NotNull final VisitableTreeNode node, @NotNull final Set<VisitableTreeNode> newNodes) {
+		TreeNode current = node;
+		while (current != null) {
+			//noinspection SuspiciousMethodCalls
+			if (newNodes.contains(current)) {
+				return true;
+			}
+			current = current.getParent();
+		}
+		return false;
+	}
 
-		String groupName = GroupBy.getGroupName(_groupBy[depth - 1], member);
-		final BugInstanceGroupNode parentGroup = _root.findChildNode(parent, depth - 1, groupName);
 
-		//final BugInstanceGroupNode parentGroup = ((RootNode) _root).getChildByBugInstance(parent, depth - 1);
-		//final BugInstanceGroupNode parentGroup = ((RootNode) _root).getChildByGroupName(GroupBy.getGroupName(_groupBy[depth - 1], parent), depth - 1);
-		//final BugInstanceGroupNode parentGroup = _groups.get(depth-1 + Arrays.toString(getGroupPath(member)));
+	@NotNull
+	private static int[] getChildIndices(@NotNull final VisitableTreeNode parent, @NotNull final Set<VisitableTreeNode> children) {
+		final int[] ret = new int[children.size()];
+		int count = 0;
+		final int childCount = parent.getChildCount();
+		for (int i = 0; i < childCount && count < ret.length; i++) {
+			//noinspection SuspiciousMethodCalls
+			if (children.contains(parent.getChildAt(i))) {
+				ret[count++] = i;
+			}
+		}
+		return ret;
+	}
 
-		if (parentGroup != null) {
-			final GroupBy groupBy = _groupBy[depth];
-			groupName = GroupBy.getGroupName(groupBy, member);
-			final BugInstanceGroupNode childGroup = new BugInstanceGroupNode(groupBy, groupName, parentGroup, member, depth, _project);
 
-			addGroupIfAbsent(Arrays.toString(BugInstanceUtil.getGroupPath(parent, depth, _groupBy)), depth, childGroup);
-			//addGroupIfAbsent(GroupBy.getGroupName(_groupBy[0], parent), depth, childGroup);
+	@NotNull
+	private static String[] getGroupNames(@NotNull final GroupBy[] groupBy, @NotNull final BugInstance bugInstance) {
+		final String[] ret = new String[groupBy.length];
+		for (int i = 0; i < groupBy.length; i++) {
+			ret[i] = GroupBy.getGroupName(groupBy[i], bugInstance);
+		}
+		return ret;
+	}
 
-			parentGroup.addChild(childGroup);
-			nodeStructureChanged(parentGroup);
 
-			if (depth < _groupBy.length - 1) {
-				startSubGroup(depth + 1, member, member);
+	@NotNull
+	private String[] intern(@NotNull final String[] groupNames) {
+		for (int i = 0; i < groupNames.length; i++) {
+			final String interned = _groupNames.get(groupNames[i]);
+			if (interned != null) {
+				groupNames[i] = interned;
 			} else {
-				addToGroup(depth, member, member);
+				_groupNames.put(groupNames[i], groupNames[i]);
+			}
+		}
+		return groupNames;
+	}
+
+
+	/**
+	 * Builds a detached model for {@code groupBy}, may be invoked by any thread. The group names
+	 * are extracted in parallel (IDEA pooled threads) and the bugs are inserted ordered by
+	 * {@link BugInstanceComparator#getGroupComparators(GroupBy[])} (ties by group name), so the groups
+	 * are sorted like the bugs of the tool window. PSI files are not resolved, this is done by {@link #swap(GroupTreeModel)}.
+	 *
+	 * @param groupBy      ..
+	 * @param project      ..
+	 * @param bugInstances ..
+	 * @return snapshot to be swapped into the visible model
+	 * @throws InterruptedException if the current thread was interrupted
+	 */
+	@NotNull
+	public static GroupTreeModel createSnapshot(@NotNull final GroupBy[] groupBy, @NotNull final Project project, @NotNull final List<BugInstance> bugInstances) throws InterruptedException {
+		final String[][] groupNames = new String[bugInstances.size()][];
+		final int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), bugInstances.size() / MIN_BUGS_PER_THREAD));
+		if (threads == 1) {
+			for (int i = 0; i < groupNames.length; i++) {
+				groupNames[i] = getGroupNames(groupBy, bugInstances.get(i));
 			}
 		} else {
-			//noinspection ThrowableInstanceNeverThrown
-			LOGGER.error(new NullPointerException("parentGroup can not be null."));
+			final List<Future<?>> futures = new ArrayList<Future<?>>(threads);
+			try {
+				final int chunk = (groupNames.length + threads - 1) / threads;
+				for (int from = 0; from < groupNames.length; from += chunk) {
+					final int start = from;
+					final int end = Math.min(groupNames.length, from + chunk);
+					futures.add(ApplicationManager.getApplication().executeOnPooledThread(new Runnable() {
+						@Override
+						public void run() {
+							for (int i = start; i < end; i++) {
+								groupNames[i] = getGroupNames(groupBy, bugInstances.get(i));
+							}
+						}
+					}));
+				}
+				for (final Future<?> future : futures) {
+					future.get();
+				}
+			} catch (final ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			} finally {
+				for (final Future<?> future : futures) {
+					future.cancel(true);
+				}
+			}
 		}
 
+		final Integer[] order = new Integer[groupNames.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		final List<Comparator<BugInstance>> comparators = BugInstanceComparator.getGroupComparators(groupBy);
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(final Integer o1, final Integer o2) {
+				final String[] names1 = groupNames[o1];
+				final String[] names2 = groupNames[o2];
+				for (int i = 0; i < names1.length; i++) {
+					int ret = comparators.get(i).compare(bugInstances.get(o1), bugInstances.get(o2));
+					if (ret == 0) {
+						ret = names1[i].compareTo(names2[i]); // keep each group contiguous
+					}
+					if (ret != 0) {
+						return ret;
+					}
+				}
+				return 0;
+			}
+		});
 
+		final GroupTreeModel ret = new GroupTreeModel(new RootNode(project.getName()), groupBy, project, true);
+		for (final Integer i : order) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			ret.insert(bugInstances.get(i), ret.intern(groupNames[i]));
+		}
+		return ret;
 	}
 
 
-	public void addToGroup(final int depth, final BugInstance member, final BugInstance parent) {
+	/**
+	 * Replaces the groups of this model by the groups of {@code snapshot} and fires one
+	 * {@link #nodeStructureChanged} event. The files and tracked positions already resolved for the old nodes are reused.
+	 *
+	 * @param snapshot see {@link #createSnapshot(GroupBy[], Project, List)}, unusable afterwards
+	 */
+	public void swap(@NotNull final GroupTreeModel snapshot) {
 		EventDispatchThreadHelper.checkEDT();
+		final Map<BugInstance, ExtendedProblemDescriptor> previousProblems = new HashMap<BugInstance, ExtendedProblemDescriptor>();
+		for (final List<ExtendedProblemDescriptor> problems : _problems.values()) {
+			for (final ExtendedProblemDescriptor problem : problems) {
+				previousProblems.put(problem.getBugInstance(), problem);
+			}
+		}
 
-		final String groupName = GroupBy.getGroupName(_groupBy[depth], member);
-		final BugInstanceGroupNode parentGroup = _root.findChildNode(parent, depth, groupName);
-
-		if (parentGroup != null) {
-			final BugInstanceNode childNode = new BugInstanceNode(member, parentGroup, _project);
-			parentGroup.addChild(childNode);
-			addProblem(childNode);
-			nodeStructureChanged(parentGroup);
-		} else {
-			//noinspection ThrowableInstanceNeverThrown
-			LOGGER.error("parentSubGroup can not be null. ", new NullPointerException());
+		_groupBy = snapshot._groupBy;
+		_bugCount = snapshot._bugCount;
+		_groupNames.clear();
+		_groupNames.putAll(snapshot._groupNames);
+		_groups.clear();
+		for (final Entry<VisitableTreeNode, Map<String, BugInstanceGroupNode>> entry : snapshot._groups.entrySet()) {
+			_groups.put(entry.getKey() == snapshot._root ? _root : entry.getKey(), entry.getValue());
+		}
+		_problems.clear();
+		_psiFileResolver.cancel();
+		_root.removeAllChilds();
+		for (final VisitableTreeNode child : snapshot._root.getChildsList()) {
+			child.getTreeNode().setParent(_root);
+			_root.addChild(child);
 		}
+		snapshot._root.removeAllChilds();
+
+		final List<BugInstance> bugs = new ArrayList<BugInstance>(_bugCount);
+		collectBugs(_root, bugs);
+		for (final BugInstance bug : bugs) {
+			final ExtendedProblemDescriptor previous = previousProblems.remove(bug);
+			if (previous != null) {
+				// keep the tracked position, the document may be edited since the analysis
+				addProblem(previous);
+			} else {
+				addProblem(bug);
+			}
+		}
+		for (final ExtendedProblemDescriptor previous : previousProblems.values()) {
+			previous.dispose();
+		}
+		nodeStructureChanged(_root);
 	}
 
 
-	public Comparator<BugInstance> currentGroupComparatorChain(final int depth) {
-		return BugInstanceComparator.getComparatorChain(depth, getGroupBy());
+	/**
+	 * Does not create any leafs.
+	 */
+	private static void collectBugs(@NotNull final VisitableTreeNode node, @NotNull final List<BugInstance> bugs) {
+		final List<BugInstance> groupBugs = node instanceof BugInstanceGroupNode ? ((BugInstanceGroupNode) node).getBugInstances() : null;
+		if (groupBugs != null) {
+			bugs.addAll(groupBugs);
+		} else {
+			for (final VisitableTreeNode child : node.getTreeNode().getChildsList()) {
+				collectBugs(child, bugs);
+			}
+		}
 	}
 
 
-	@Override
-	public List<BugInstance> availableGroups(final int depth, final BugInstance bugInstance) {
-		final List<BugInstance> result = new ArrayList<BugInstance>();
-
-		//final GroupBy groupBy = _groupBy[0];
-		//final String groupName = GroupBy.getGroupName(groupBy, bugInstance);
-		final String groupName = Arrays.toString(BugInstanceUtil.getGroupPath(bugInstance, depth, _groupBy));
-
-		if (_groups.containsKey(groupName)) {
-			final Map<Integer, List<BugInstanceGroupNode>> map = _groups.get(groupName);
-
-			if (map.containsKey(depth)) {
-				final List<BugInstanceGroupNode> groupNodes = map.get(depth);
-
-				for (final BugInstanceGroupNode node : groupNodes) {
-					result.add(node.getBugInstance());
-				}
+	/**
+	 * @param groupNames group names from the root
+	 * @return path of the group or null if there is no such group
+	 */
+	@Nullable
+	public TreePath findGroupPath(@NotNull final String[] groupNames) {
+		final Object[] path = new Object[groupNames.length + 1];
+		path[0] = _root;
+		VisitableTreeNode parent = _root;
+		for (int i = 0; i < groupNames.length; i++) {
+			final Map<String, BugInstanceGroupNode> childGroups = _groups.get(parent);
+			parent = childGroups != null ? childGroups.get(groupNames[i]) : null;
+			if (parent == null) {
+				return null;
 			}
+			path[i + 1] = parent;
 		}
-
-		return result;
+		return new TreePath(path);
 	}
 
 
@@ -273,7 +567,9 @@ public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNod
 		//_sortedCollection.clear();
 		_bugCount = 0;
 		_groups.clear();
-		_problems.clear();
+		_groupNames.clear();
+		clearProblems();
+		_psiFileResolver.cancel();
 		_root.removeAllChilds();
 		nodeStructureChanged(_root);
 		reload();
@@ -283,35 +579,32 @@ public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNod
 
 	@Nullable
 	public BugInstanceNode findNodeByBugInstance(final BugInstance bugInstance) {
-		final String[] fullGroupPath = BugInstanceUtil.getFullGroupPath(bugInstance, _groupBy);
-		final String[] groupNameKey = BugInstanceUtil.getGroupPath(bugInstance, fullGroupPath.length - 1, _groupBy);
-
-		final Map<Integer, List<BugInstanceGroupNode>> map = _groups.get(Arrays.toString(groupNameKey));
-		if (map != null) {
-			for (final Entry<Integer, List<BugInstanceGroupNode>> entry : map.entrySet()) {
-
-				final List<BugInstanceGroupNode> groupNodes = entry.getValue();
-				for (final BugInstanceGroupNode groupNode : groupNodes) {
-
-					final List<VisitableTreeNode> bugInstanceNodes = groupNode.getChildsList();
-					for (final VisitableTreeNode node : bugInstanceNodes) {
-						final BugInstance bug = ((BugInstanceNode) node).getBugInstance();
-						if (bug.equals(bugInstance)) {
-							return (BugInstanceNode) node;
-						}
-					}
-				}
+		VisitableTreeNode parent = _root;
+		for (final String groupName : getGroupNames(_groupBy, bugInstance)) {
+			final Map<String, BugInstanceGroupNode> childGroups = _groups.get(parent);
+			parent = childGroups != null ? childGroups.get(groupName) : null;
+			if (parent == null) {
+				return null;
+			}
+		}
+		// creates the leafs of the group, the found node is selected (group expanded) anyway
+		for (final VisitableTreeNode node : parent.getTreeNode().getChildsList()) {
+			if (node instanceof BugInstanceNode && ((BugInstanceNode) node).getBugInstance().equals(bugInstance)) {
+				return (BugInstanceNode) node;
 			}
 		}
-
-
 		return null;
 	}
 
 
+	/**
+	 * @return the bugs of all groups
+	 */
 	@NotNull
-	public Collection<BugInstance> getBugInstances() {
-		return _root.getAllChildBugInstances();
+	public List<BugInstance> getBugInstances() {
+		final List<BugInstance> ret = new ArrayList<BugInstance>(_bugCount);
+		collectBugs(_root, ret);
+		return ret;
 	}
 
 
@@ -328,7 +621,15 @@ public class GroupTreeModel extends AbstractTreeModel<VisitableTreeNode, RootNod
 	 */
 	@Override
 	public VisitableTreeNode getChildNode(final VisitableTreeNode parent, final int index) {
-		return (VisitableTreeNode) parent.getChildAt(index);
+		final VisitableTreeNode ret = (VisitableTreeNode) parent.getChildAt(index);
+		if (ret instanceof BugInstanceNode) {
+			// leafs are created when their group is expanded, the file may be resolved already
+			final BugInstanceNode leaf = (BugInstanceNode) ret;
+			if (leaf.getVirtualFile() == null) {
+				leaf.setVirtualFile(_psiFileResolver.getCached(leaf.getBugInstance()));
+			}
+		}
+		return ret;
 	}
 
 
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2008-2015 Andre Pfeiler
+ *
+ * This file is part of FindBugs-IDEA.
+ *
+ * FindBugs-IDEA is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FindBugs-IDEA is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with FindBugs-IDEA.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.twodividedbyzero.idea.findbugs.gui.tree.model;
+
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import edu.umd.cs.findbugs.BugInstance;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.twodividedbyzero.idea.findbugs.common.EventDispatchThreadHelper;
+import org.twodividedbyzero.idea.findbugs.common.util.IdeaUtilImpl;
+import org.twodividedbyzero.idea.findbugs.common.util.New;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Resolves the file of bugs on a pooled thread, so adding bugs
+ * to the tree never blocks the EDT on PSI lookups.
+ * <p>
+ * Queued bugs are grouped by source path and each path is resolved once in its own read action
+ * (see {@link IdeaUtilImpl#findJavaPsiClass(Project, String)}). Resolved files are cached by source
+ * path and published to the {@link Callback} on the EDT in chunks while the lookup is still running.
+ *
+ * @author Reto Merz<reto.merz@gmail.com>
+ * @since 0.9.998
+ */
+final class PsiFileResolver {
+
+	private static final Logger LOGGER = Logger.getInstance(PsiFileResolver.class.getName());
+
+	/**
+	 * Max time between two publications of resolved bugs.
+	 */
+	private static final long PUBLISH_INTERVAL_MILLIS = 100;
+
+	private final Project _project;
+	private final Callback _callback;
+	private final Map<String, VirtualFile> _fileBySourcePath;
+	/**
+	 * Source paths which could not be resolved in the current generation.
+	 */
+	private final Set<String> _unresolved;
+	private final Object _lock;
+	private List<BugInstance> _pending;
+	private boolean _running;
+	private int _generation;
+
+
+	PsiFileResolver(@NotNull final Project project, @NotNull final Callback callback) {
+		_project = project;
+		_callback = callback;
+		_fileBySourcePath = New.concurrentMap();
+		_unresolved = New.set();
+		_lock = new Object();
+		_pending = New.arrayList();
+	}
+
+
+	/**
+	 * Invoked by EDT.
+	 *
+	 * @param bug ..
+	 * @return the cached file of {@code bug}, or null if {@code bug} is queued for background resolution
+	 */
+	@Nullable
+	VirtualFile resolve(@NotNull final BugInstance bug) {
+		EventDispatchThreadHelper.checkEDT();
+		final VirtualFile ret = getCached(bug);
+		if (ret != null) {
+			return ret;
+		}
+		synchronized (_lock) {
+			if (_unresolved.contains(getSourcePath(bug))) {
+				return null;
+			}
+			_pending.add(bug);
+			if (!_running) {
+				_running = true;
+				ApplicationManager.getApplication().executeOnPooledThread(new Runnable() {
+					@Override
+					public void run() {
+						resolvePending();
+					}
+				});
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * Drops all queued bugs; results of running lookups are not published anymore.
+	 * Invoked by EDT.
+	 */
+	void cancel() {
+		EventDispatchThreadHelper.checkEDT();
+		synchronized (_lock) {
+			_generation++;
+			_pending.clear();
+			_unresolved.clear();
+		}
+	}
+
+
+	/**
+	 * @param bug ..
+	 * @return the file of {@code bug} if it was already resolved
+	 */
+	@Nullable
+	VirtualFile getCached(@NotNull final BugInstance bug) {
+		return getCached(getSourcePath(bug));
+	}
+
+
+	@Nullable
+	private VirtualFile getCached(@NotNull final String sourcePath) {
+		final VirtualFile ret = _fileBySourcePath.get(sourcePath);
+		if (ret != null && !ret.isValid()) {
+			_fileBySourcePath.remove(sourcePath);
+			return null;
+		}
+		return ret;
+	}
+
+
+	private void resolvePending() {
+		while (true) {
+			final List<BugInstance> batch;
+			final int generation;
+			synchronized (_lock) {
+				if (_pending.isEmpty() || _project.isDisposed()) {
+					_pending.clear();
+					_running = false;
+					return;
+				}
+				batch = _pending;
+				_pending = New.arrayList();
+				generation = _generation;
+			}
+
+			final Map<String, List<BugInstance>> bugsBySourcePath = new LinkedHashMap<String, List<BugInstance>>();
+			for (final BugInstance bug : batch) {
+				final String sourcePath = getSourcePath(bug);
+				List<BugInstance> bugs = bugsBySourcePath.get(sourcePath);
+				if (bugs == null) {
+					bugs = New.arrayList();
+					bugsBySourcePath.put(sourcePath, bugs);
+				}
+				bugs.add(bug);
+			}
+
+			List<BugInstance> resolvedBugs = New.arrayList();
+			List<VirtualFile> resolvedFiles = New.arrayList();
+			long lastPublish = System.currentTimeMillis();
+			for (final Map.Entry<String, List<BugInstance>> entry : bugsBySourcePath.entrySet()) {
+				if (!isCurrent(generation)) {
+					break;
+				}
+				final VirtualFile file = find(entry.getKey());
+				if (file == null) {
+					synchronized (_lock) {
+						if (_generation == generation) {
+							_unresolved.add(entry.getKey());
+						}
+					}
+					continue;
+				}
+				for (final BugInstance bug : entry.getValue()) {
+					resolvedBugs.add(bug);
+					resolvedFiles.add(file);
+				}
+				if (System.currentTimeMillis() - lastPublish > PUBLISH_INTERVAL_MILLIS) {
+					publish(generation, resolvedBugs, resolvedFiles);
+					resolvedBugs = New.arrayList();
+					resolvedFiles = New.arrayList();
+					lastPublish = System.currentTimeMillis();
+				}
+			}
+			publish(generation, resolvedBugs, resolvedFiles);
+		}
+	}
+
+
+	@NotNull
+	private static String getSourcePath(@NotNull final BugInstance bug) {
+		return bug.getPrimaryClass().getSourceLines().getSourcePath();
+	}
+
+
+	@Nullable
+	private VirtualFile find(@NotNull final String sourcePath) {
+		VirtualFile ret = getCached(sourcePath);
+		if (ret != null) {
+			return ret;
+		}
+		try {
+			ret = DumbService.getInstance(_project).runReadActionInSmartMode(new Computable<VirtualFile>() {
+				@Override
+				public VirtualFile compute() {
+					if (_project.isDisposed()) {
+						return null;
+					}
+					final PsiFile psiFile = IdeaUtilImpl.getPsiFile(IdeaUtilImpl.findJavaPsiClass(_project, sourcePath));
+					return psiFile != null ? psiFile.getVirtualFile() : null;
+				}
+			});
+		} catch (final RuntimeException e) {
+			LOGGER.warn("Could not resolve " + sourcePath, e);
+			return null;
+		}
+		if (ret != null) {
+			_fileBySourcePath.put(sourcePath, ret);
+		}
+		return ret;
+	}
+
+
+	private boolean isCurrent(final int generation) {
+		synchronized (_lock) {
+			return _generation == generation;
+		}
+	}
+
+
+	private void publish(final int generation, @NotNull final List<BugInstance> bugs, @NotNull final List<VirtualFile> files) {
+		if (bugs.isEmpty()) {
+			return;
+		}
+		EventDispatchThreadHelper.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				if (isCurrent(generation) && !_project.isDisposed()) {
+					_callback.resolved(bugs, files);
+				}
+			}
+		});
+	}
+
+
+	interface Callback {
+
+		/**
+		 * Invoked by EDT.
+		 *
+		 * @param bugs  resolved bugs
+		 * @param files the file of the bug at the same index
+		 */
+		void resolved(@NotNull List<BugInstance> bugs, @NotNull List<VirtualFile> files);
+	}
+}
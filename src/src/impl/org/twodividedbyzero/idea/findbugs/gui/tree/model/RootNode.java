@@ -22,10 +22,7 @@ package org.twodividedbyzero.idea.findbugs.gui.tree.model;
 import com.intellij.ui.JBColor;
 import edu.umd.cs.findbugs.BugInstance;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 import org.twodividedbyzero.idea.findbugs.gui.tree.NodeVisitor;
-import org.twodividedbyzero.idea.findbugs.gui.tree.RecurseNodeVisitor;
-import org.twodividedbyzero.idea.findbugs.gui.tree.RecurseNodeVisitor.RecurseVisitCriteria;
 import org.twodividedbyzero.idea.findbugs.gui.tree.view.MaskIcon;
 import org.twodividedbyzero.idea.findbugs.resources.ResourcesLoader;
 
@@ -49,7 +46,6 @@ public class RootNode extends AbstractTreeNode<VisitableTreeNode> implements Vis
 
 	private static final Icon EXPAND_ICON = new MaskIcon(ResourcesLoader.loadIcon("fb-idea-logo_16x16.png"), JBColor.BLACK);
 	private static final Icon COLLAPSE_ICON = EXPAND_ICON;
-	private final RecurseNodeVisitor<RootNode> _recurseNodeVisitor = new RecurseNodeVisitor<RootNode>(this);
 
 
 	public RootNode(final String simpleName) {
@@ -99,78 +95,6 @@ public class RootNode extends AbstractTreeNode<VisitableTreeNode> implements Vis
 	}
 
 
-	/**
-	 * Perfomrs a deep search. Get child BugInstanceGroupNode by BugInstance group name.
-	 *
-	 * @param groupName the group name to search for
-	 * @param depth
-	 * @return the BugInstanceGroupNode
-	 * @deprecated use {@link RootNode#findChildNode(edu.umd.cs.findbugs.BugInstance, int, String)}
-	 */
-	@Deprecated
-	@Nullable
-	public BugInstanceGroupNode getChildByGroupName(final String groupName, final int depth) {
-		BugInstanceGroupNode resultNode = null;
-
-		for (final TreeNode node : _childs) {
-			if (node instanceof BugInstanceGroupNode) {
-				final BugInstanceGroupNode groupNode = (BugInstanceGroupNode) node;
-				if (groupName.equals(groupNode.getGroupName()) && depth == groupNode.getDepth()) {
-					resultNode = groupNode;
-				} else {
-					resultNode = groupNode.getChildByGroupName(groupName, depth);
-				}
-
-				if (resultNode != null) {
-					break;
-				}
-
-			}
-		}
-
-		return resultNode;
-	}
-
-
-	/**
-	 * Perfomrs a deep search. Get child BugInstanceGroupNode by BugInstance object.
-	 *
-	 * @param bugInstance the findbugs buginstance to search for
-	 * @param depth	   the machting depth to search for
-	 * @return the BugInstanceGroupNode
-	 * @deprecated use {@link RootNode#findChildNode(edu.umd.cs.findbugs.BugInstance, int, String)}
-	 */
-	@Deprecated
-	@Nullable
-	public BugInstanceGroupNode getChildByBugInstance(final BugInstance bugInstance, final int depth) {
-		BugInstanceGroupNode resultNode = null;
-
-		for (final TreeNode node : _childs) {
-			if (node instanceof BugInstanceGroupNode) {
-				final BugInstanceGroupNode groupNode = (BugInstanceGroupNode) node;
-				if (bugInstance.equals(groupNode.getBugInstance()) && depth == groupNode.getDepth()) {
-					resultNode = groupNode;
-				} else {
-					resultNode = groupNode.getChildByBugInstance(bugInstance, depth);
-				}
-
-				if (resultNode != null) {
-					break;
-				}
-			}
-		}
-
-		return resultNode;
-	}
-
-
-	@Nullable
-	public BugInstanceGroupNode findChildNode(final BugInstance bugInstance, final int depth, final String groupName) {
-		final RecurseVisitCriteria criteria = new RecurseVisitCriteria(bugInstance, depth, groupName);
-		return _recurseNodeVisitor.findChildNode(criteria);
-	}
-
-
 	@NotNull
 	public List<BugInstance> getChildBugInstances() {
 		final List<BugInstance> list = new ArrayList<BugInstance>();
@@ -215,7 +139,6 @@ public class RootNode extends AbstractTreeNode<VisitableTreeNode> implements Vis
 		sb.append("{_bugCount=").append(_bugCount);
 		sb.append(", _classesCount=").append(_classesCount);
 		sb.append(", _childs=").append(_childs);
-		sb.append(", _recurseNodeVisitor=").append(_recurseNodeVisitor);
 		sb.append('}');
 		return sb.toString();
 	}
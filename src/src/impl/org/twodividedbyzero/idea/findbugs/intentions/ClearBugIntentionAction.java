@@ -21,11 +21,11 @@ package org.twodividedbyzero.idea.findbugs.intentions;
 import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiDeclarationStatement;
 import com.intellij.psi.PsiDocCommentOwner;
 import com.intellij.psi.PsiElement;
-import com.intellij.psi.PsiFile;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.IncorrectOperationException;
 import org.jetbrains.annotations.NotNull;
@@ -55,8 +55,11 @@ public class ClearBugIntentionAction extends SuppressReportBugIntentionAction {
 
 	@Override
 	public void invoke(@NotNull final Project project, final Editor editor, @NotNull final PsiElement element) throws IncorrectOperationException {
-		final Map<PsiFile, List<ExtendedProblemDescriptor>> problems = IdeaUtilImpl.getPluginComponent(project).getProblems();
-		problems.get(element.getContainingFile()).remove(getProblemDescriptor());
+		final Map<VirtualFile, List<ExtendedProblemDescriptor>> problems = IdeaUtilImpl.getPluginComponent(project).getProblems();
+		final List<ExtendedProblemDescriptor> fileProblems = problems.get(getProblemDescriptor().getVirtualFile());
+		if (fileProblems != null && fileProblems.remove(getProblemDescriptor())) {
+			getProblemDescriptor().dispose();
+		}
 		DaemonCodeAnalyzer.getInstance(project).restart();
 	}
 
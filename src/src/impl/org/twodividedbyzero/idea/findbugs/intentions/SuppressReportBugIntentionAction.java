@@ -31,6 +31,7 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.util.Iconable;
 import com.intellij.openapi.vfs.ReadonlyStatusHandler;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.JavaPsiFacade;
 import com.intellij.psi.PsiAnnotation;
 import com.intellij.psi.PsiAnonymousClass;
@@ -82,7 +83,7 @@ public class SuppressReportBugIntentionAction extends SuppressIntentionAction im
 		_problemDescriptor = problemDescriptor;
 		_bugPatternId = getBugId(problemDescriptor);
 
-		final Project project = IdeaUtilImpl.getProject(problemDescriptor.getPsiFile());
+		final Project project = problemDescriptor.getProject();
 		final FindBugsPreferences preferences = IdeaUtilImpl.getPluginComponent(project).getPreferences();
 		_suppressWarningsClassName = preferences.getProperty(FindBugsPreferences.ANNOTATION_SUPPRESS_WARNING_CLASS);
 	}
@@ -192,8 +193,11 @@ public class SuppressReportBugIntentionAction extends SuppressIntentionAction im
 		} else {
 			Messages.showErrorDialog(editor.getComponent(), "Add suppress annotation is not supported for Java 1.3 and older", "Unsupported");
 		}
-		final Map<PsiFile, List<ExtendedProblemDescriptor>> problems = IdeaUtilImpl.getPluginComponent(project).getProblems();
-		problems.get(element.getContainingFile()).remove(getProblemDescriptor());
+		final Map<VirtualFile, List<ExtendedProblemDescriptor>> problems = IdeaUtilImpl.getPluginComponent(project).getProblems();
+		final List<ExtendedProblemDescriptor> fileProblems = problems.get(getProblemDescriptor().getVirtualFile());
+		if (fileProblems != null && fileProblems.remove(getProblemDescriptor())) {
+			getProblemDescriptor().dispose();
+		}
 		DaemonCodeAnalyzer.getInstance(project).restart();
 	}
 
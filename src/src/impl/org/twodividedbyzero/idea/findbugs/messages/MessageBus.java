@@ -28,6 +28,7 @@ import org.twodividedbyzero.idea.findbugs.common.util.New;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.Map;
 
 
@@ -65,6 +66,11 @@ final class MessageBus {
 	}
 
 
+	public void unsubscribe(@NotNull final Object subscriber) {
+		_subscribers.remove(subscriber);
+	}
+
+
 	@SuppressWarnings("unchecked")
 	@NotNull
 	public <L> L publisher(@NotNull final Topic<L> topic) {
@@ -74,7 +80,8 @@ final class MessageBus {
 			final InvocationHandler handler = new InvocationHandler() {
 				@Override
 				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-					for (Map<Topic<?>, Object/*handler*/> handlerByTopic : _subscribers.values()) {
+					// copy: a handler may unsubscribe (e.g. a finished FindBugsStarter) while the topic is published
+					for (Map<Topic<?>, Object/*handler*/> handlerByTopic : new ArrayList<Map<Topic<?>, Object>>(_subscribers.values())) {
 						final Object handler = handlerByTopic.get(topic);
 						if (null != handler) {
 							method.invoke(handler, args);
@@ -31,6 +31,7 @@ import org.twodividedbyzero.idea.findbugs.common.util.New;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsProject;
 import org.twodividedbyzero.idea.findbugs.core.FindBugsState;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -84,6 +85,21 @@ public final class MessageBusManager {
 	}
 
 
+	/**
+	 * Removes all handlers of {@code subscriber}.
+	 *
+	 * @param project ..
+	 * @param subscriber ..
+	 */
+	public static void unsubscribe(@NotNull final Project project, @NotNull final Object subscriber) {
+		EventDispatchThreadHelper.checkEDT();
+		final MessageBus bus = _busByProject.get(project);
+		if (bus != null) {
+			bus.unsubscribe(subscriber);
+		}
+	}
+
+
 	public static void publishClear(@NotNull final Project project) {
 		EventDispatchThreadHelper.checkEDT();
 		FindBugsState.set(project, FindBugsState.Cleared);
@@ -91,9 +107,9 @@ public final class MessageBusManager {
 	}
 
 
-	public static void publishNewBugInstance(@NotNull final Project project, @NotNull final BugInstance bugInstance, @NotNull final ProjectStats projectStats) {
+	public static void publishNewBugInstances(@NotNull final Project project, @NotNull final List<BugInstance> bugInstances, @NotNull final ProjectStats projectStats) {
 		EventDispatchThreadHelper.checkEDT();
-		publish(project, NewBugInstanceListener.TOPIC).newBugInstance(bugInstance, projectStats);
+		publish(project, NewBugInstanceListener.TOPIC).newBugInstances(bugInstances, projectStats);
 	}
 
 
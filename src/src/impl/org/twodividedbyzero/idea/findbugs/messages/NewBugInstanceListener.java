@@ -5,15 +5,17 @@ import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.ProjectStats;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 public interface NewBugInstanceListener {
 	Topic<NewBugInstanceListener> TOPIC = Topic.create("FindBugs New Bug Instance", NewBugInstanceListener.class);
 
 	/**
-	 * Invoked by EDT.
+	 * Invoked by EDT. Tree model events are expected to be coalesced per batch.
 	 *
-	 * @param bugInstance ..
+	 * @param bugInstances ..
 	 * @param projectStats ..
 	 */
-	void newBugInstance(@NotNull final BugInstance bugInstance, @NotNull final ProjectStats projectStats);
+	void newBugInstances(@NotNull final List<BugInstance> bugInstances, @NotNull final ProjectStats projectStats);
 
 }
\ No newline at end of file
@@ -74,6 +74,7 @@ public class FindBugsPreferences extends Properties {
 	public static final String PROPERTIES_PREFIX = "property.";
 
 	public static final String RUN_ANALYSIS_IN_BACKGROUND = PROPERTIES_PREFIX + "runAnalysisInBackground";
+	public static final String RUN_ANALYSIS_IN_PARALLEL = PROPERTIES_PREFIX + "runAnalysisInParallel";
 	public static final String ANALYSIS_EFFORT_LEVEL = PROPERTIES_PREFIX + "analysisEffortLevel";
 	public static final String MIN_PRIORITY_TO_REPORT = PROPERTIES_PREFIX + "minPriorityToReport";
 	public static final String SHOW_HIDDEN_DETECTORS = PROPERTIES_PREFIX + "showHiddenDetectors";
@@ -83,6 +84,9 @@ public class FindBugsPreferences extends Properties {
 
 	public static final String ANALYZE_AFTER_COMPILE = PROPERTIES_PREFIX + "analyzeAfterCompile";
 	public static final String ANALYZE_AFTER_AUTOMAKE = PROPERTIES_PREFIX + "analyzeAfterAutoMake";
+	public static final String ANALYZE_AFTER_CLASS_FILE_CHANGE = PROPERTIES_PREFIX + "analyzeAfterClassFileChange";
+	public static final String PIPELINE_COMPILE_AND_ANALYZE = PROPERTIES_PREFIX + "pipelineCompileAndAnalyze";
+	public static final String AUTOMAKE_MAX_DEPENDENTS = PROPERTIES_PREFIX + "automakeMaxDependents";
 
 	public static final String IMPORT_FILE_PATH = PROPERTIES_PREFIX + "importedFilePath";
 	public static final String EXPORT_BASE_DIR = PROPERTIES_PREFIX + "exportBaseDir";
@@ -100,6 +104,7 @@ public class FindBugsPreferences extends Properties {
 	public static final String ANNOTATION_TEXT_RAGE_MARKUP_ENABLED = PROPERTIES_PREFIX + "annotationTextRangeMarkupEnabled";
 	public static final String ANNOTATION_TYPE_SETTINGS = PROPERTIES_PREFIX + "annotationTypeSettings";
 	public static final String DEFAULT_ANNOTATION_CLASS_NAME = "edu.umd.cs.findbugs.annotations.SuppressFBWarnings";
+	public static final int DEFAULT_AUTOMAKE_MAX_DEPENDENTS = 200;
 
 	public transient boolean _annotationTextRangeMarkupEnabled;
 	public transient boolean _annotationGutterIconEnabled;
@@ -283,6 +288,24 @@ public class FindBugsPreferences extends Properties {
 	}
 
 
+	public int getIntProperty(final String propertyName, final int defaultValue) {
+		final String value = getProperty(propertyName);
+		if (value != null) {
+			try {
+				return Integer.parseInt(value.trim());
+			} catch (final NumberFormatException e) {
+				LOGGER.debug("Invalid int property " + propertyName + ": " + value, e);
+			}
+		}
+		return defaultValue;
+	}
+
+
+	public void setProperty(final String propertyName, final int value) {
+		setProperty(propertyName, Integer.toString(value));
+	}
+
+
 	@Override
 	public synchronized Object setProperty(final String key, @NotNull final String value) {
 		setModified(true);
@@ -668,6 +691,7 @@ public class FindBugsPreferences extends Properties {
 		final ProjectFilterSettings filterSettings = userPrefs.getFilterSettings();
 		preferences.setUserPreferences(userPrefs);
 		preferences.setProperty(FindBugsPreferences.RUN_ANALYSIS_IN_BACKGROUND, false);
+		preferences.setProperty(FindBugsPreferences.RUN_ANALYSIS_IN_PARALLEL, false);
 		//_preferences.setProperty(FindBugsPreferences.ANALYSIS_EFFORT_LEVEL, AnalysisEffort.valueOfLevel(AnalysisEffort.DEFAULT.getMessage()).getEffortLevel());
 		preferences.setProperty(FindBugsPreferences.ANALYSIS_EFFORT_LEVEL, userPrefs.getEffort());
 		//_preferences.setProperty(FindBugsPreferences.MIN_PRIORITY_TO_REPORT, ReportConfiguration.DEFAULT_PRIORITY);
@@ -677,6 +701,9 @@ public class FindBugsPreferences extends Properties {
 		preferences.setProperty(FindBugsPreferences.COMPILE_BEFORE_ANALYZE, true);
 		preferences.setProperty(FindBugsPreferences.ANALYZE_AFTER_COMPILE, false);
 		preferences.setProperty(FindBugsPreferences.ANALYZE_AFTER_AUTOMAKE, false);
+		preferences.setProperty(FindBugsPreferences.ANALYZE_AFTER_CLASS_FILE_CHANGE, false);
+		preferences.setProperty(FindBugsPreferences.PIPELINE_COMPILE_AND_ANALYZE, false);
+		preferences.setProperty(FindBugsPreferences.AUTOMAKE_MAX_DEPENDENTS, DEFAULT_AUTOMAKE_MAX_DEPENDENTS);
 
 		preferences.setProperty(FindBugsPreferences.EXPORT_AS_HTML, true);
 		preferences.setProperty(FindBugsPreferences.EXPORT_AS_XML, true);